@@ -0,0 +1,210 @@
+package com.example.smarttimeline.data.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.util.Constants;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+
+    // Schema of the original release, before any migration existed
+    private static final String CREATE_POSTS_V1 = "CREATE TABLE IF NOT EXISTS `posts` ("
+            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `text` TEXT, `imageUri` TEXT, "
+            + "`location` TEXT, `timestamp` INTEGER NOT NULL, `mood` TEXT, `tags` TEXT)";
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(),
+            AppDatabase.class);
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void migrateFromVersion1_validatesAgainstExportedSchema() throws Exception {
+        createVersion1Database();
+
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(
+                TEST_DB, Constants.DATABASE_VERSION, true, Migrations.ALL);
+        db.close();
+    }
+
+    @Test
+    public void migrateFromVersion1_keepsPostsAndMovesTags() throws Exception {
+        createVersion1Database();
+
+        AppDatabase database = openMigratedDatabase();
+        List<Post> posts = database.postDao().getNewestPostsSync(10);
+
+        assertEquals(2, posts.size());
+        assertEquals("Coffee at the corner cafe", posts.get(0).getText());
+        assertEquals(Arrays.asList("coffee", "morning"), posts.get(0).getTags());
+        assertNull(posts.get(1).getTags());
+
+        SupportSQLiteDatabase db = database.getOpenHelper().getReadableDatabase();
+        assertEquals(2, count(db, "SELECT COUNT(*) FROM post_tags"));
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM post_tags WHERE tag = 'morning'"));
+
+        database.close();
+    }
+
+    @Test
+    public void migrateFromVersion1_indexesExistingPostsForSearch() throws Exception {
+        createVersion1Database();
+
+        AppDatabase database = openMigratedDatabase();
+        SupportSQLiteDatabase db = database.getOpenHelper().getReadableDatabase();
+
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM posts_fts WHERE posts_fts MATCH 'caf*'"));
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM posts_fts WHERE posts_fts MATCH 'morning'"));
+
+        database.close();
+    }
+
+    @Test
+    public void migrateFromVersion1_createsPostIndices() throws Exception {
+        createVersion1Database();
+
+        AppDatabase database = openMigratedDatabase();
+        SupportSQLiteDatabase db = database.getOpenHelper().getReadableDatabase();
+
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM sqlite_master "
+                + "WHERE type = 'index' AND name = 'index_posts_timestamp'"));
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM sqlite_master "
+                + "WHERE type = 'index' AND name = 'index_posts_mood_timestamp'"));
+
+        database.close();
+    }
+
+    @Test
+    public void migrateFromVersion1_backfillsUpdatedAtAndTracksDeletions() throws Exception {
+        createVersion1Database();
+
+        AppDatabase database = openMigratedDatabase();
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM posts WHERE updatedAt != timestamp"));
+        assertEquals(1, database.postDao().getChangedPostCountSync(1500L));
+
+        database.postDao().deleteByIds(Arrays.asList(1));
+        assertEquals(Arrays.asList(1), database.postDao().getDeletedPostIdsSince(0));
+
+        database.close();
+    }
+
+    @Test
+    public void migrateFromVersion1_populatesAndMaintainsStats() throws Exception {
+        createVersion1Database();
+
+        AppDatabase database = openMigratedDatabase();
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+
+        assertEquals(2, count(db, "SELECT SUM(count) FROM daily_stats"));
+        assertEquals(1, count(db, "SELECT count FROM mood_stats WHERE mood = 'Happy'"));
+        assertEquals(1, count(db, "SELECT count FROM tag_stats WHERE tag = 'coffee'"));
+
+        // Tags go with the post through the cascade, and empty buckets are dropped
+        database.postDao().deleteByIds(Arrays.asList(1));
+        assertEquals(1, count(db, "SELECT SUM(count) FROM daily_stats"));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM mood_stats WHERE mood = 'Happy'"));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM tag_stats"));
+
+        db.execSQL("UPDATE mood_stats SET count = 99");
+        database.postDao().rebuildStats();
+        assertEquals(1, count(db, "SELECT count FROM mood_stats WHERE mood = 'Calm'"));
+
+        database.close();
+    }
+
+    @Test
+    public void migrateFromVersion1_countsPostsUnderTheirStoredDay() throws Exception {
+        createVersion1Database();
+
+        AppDatabase database = openMigratedDatabase();
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM posts WHERE localDay IS NULL"));
+
+        // Saved in another time zone: taken back from the day it was counted under, not the day its
+        // timestamp falls on here
+        db.execSQL("INSERT INTO posts (text, timestamp, localDay) VALUES ('Late flight', 3000, '1999-12-31')");
+        assertEquals(1, count(db, "SELECT count FROM daily_stats WHERE day = '1999-12-31'"));
+        db.execSQL("DELETE FROM posts WHERE localDay = '1999-12-31'");
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM daily_stats WHERE day = '1999-12-31'"));
+        assertEquals(2, count(db, "SELECT SUM(count) FROM daily_stats"));
+
+        database.close();
+    }
+
+    private void createVersion1Database() {
+        SupportSQLiteOpenHelper.Configuration configuration = SupportSQLiteOpenHelper.Configuration
+                .builder(context)
+                .name(TEST_DB)
+                .callback(new SupportSQLiteOpenHelper.Callback(1) {
+                    @Override
+                    public void onCreate(SupportSQLiteDatabase db) {
+                        db.execSQL(CREATE_POSTS_V1);
+                    }
+
+                    @Override
+                    public void onUpgrade(SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+                    }
+                })
+                .build();
+
+        SupportSQLiteOpenHelper openHelper = new FrameworkSQLiteOpenHelperFactory().create(configuration);
+        SupportSQLiteDatabase db = openHelper.getWritableDatabase();
+        db.execSQL("INSERT INTO posts (text, location, timestamp, mood, tags) VALUES (?, ?, ?, ?, ?)",
+                new Object[]{"Coffee at the corner cafe", "Lisbon", 2000L, "Happy", "[\"coffee\",\"morning\"]"});
+        db.execSQL("INSERT INTO posts (text, location, timestamp, mood, tags) VALUES (?, ?, ?, ?, ?)",
+                new Object[]{"Long walk", null, 1000L, "Calm", null});
+        openHelper.close();
+    }
+
+    private AppDatabase openMigratedDatabase() {
+        return Room.databaseBuilder(context, AppDatabase.class, TEST_DB)
+                .addMigrations(Migrations.ALL)
+                .allowMainThreadQueries()
+                .build();
+    }
+
+    private static int count(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.smarttimeline;
 
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ImageView;
@@ -14,6 +15,7 @@ import androidx.fragment.app.Fragment;
 
 import com.example.smarttimeline.notification.NotificationScheduler;
 import com.example.smarttimeline.ui.timeline.TimelineFragment;
+import com.example.smarttimeline.util.AppExecutors;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
@@ -152,6 +154,15 @@ public class MainActivity extends AppCompatActivity {
                 .commit();
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Pool sizes, queue depths and wait times of the session so far, for tuning on debug builds
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            AppExecutors.getInstance().logStats();
+        }
+    }
+
     private void showFab(boolean show) {
         if (show) {
             fabQuickAdd.show();
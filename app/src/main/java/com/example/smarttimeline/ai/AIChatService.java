@@ -3,35 +3,29 @@ package com.example.smarttimeline.ai;
 import android.util.Log;
 
 import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.util.AppExecutors;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class AIChatService {
 
     private static final String TAG = "AIChatService";
-    private static final String API_ENDPOINT = "https://api.groq.com/openai/v1/chat/completions";
-    private static final int TIMEOUT = 30000;
     private static final int MAX_CONTEXT_MESSAGES = 10;
 
-    private final ExecutorService executorService;
+    private final AppExecutors.SerialExecutor executor;
+    private final AIHttpClient httpClient;
     private String apiKey;
     private List<JSONObject> conversationHistory;
 
     public AIChatService() {
-        this.executorService = Executors.newSingleThreadExecutor();
+        this.executor = AppExecutors.getInstance().newSerialExecutor(AppExecutors.getInstance().network());
+        this.httpClient = AIHttpClient.getInstance();
         this.conversationHistory = new ArrayList<>();
     }
 
@@ -44,6 +38,13 @@ public class AIChatService {
         void onError(String error);
     }
 
+    public interface StreamCallback {
+        // Called on the service's thread for every piece of text as it arrives
+        void onPartial(String delta);
+        void onResponse(String response);
+        void onError(String error);
+    }
+
     public void sendMessage(String userMessage, List<Post> userPosts, ChatCallback callback) {
         if (apiKey == null || apiKey.isEmpty()) {
             callback.onError("API key not configured");
@@ -55,7 +56,7 @@ public class AIChatService {
             return;
         }
 
-        executorService.execute(() -> {
+        executor.execute(() -> {
             try {
                 String response = callChatAPI(userMessage, userPosts);
                 callback.onResponse(response);
@@ -66,39 +67,35 @@ public class AIChatService {
         });
     }
 
-    private String callChatAPI(String userMessage, List<Post> userPosts) throws IOException, JSONException {
-        URL url = new URL(API_ENDPOINT);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-
-        try {
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("Authorization", "Bearer " + apiKey);
-            connection.setDoOutput(true);
-            connection.setConnectTimeout(TIMEOUT);
-            connection.setReadTimeout(TIMEOUT);
-
-            JSONObject requestBody = buildChatRequestBody(userMessage, userPosts);
-
-            try (OutputStream os = connection.getOutputStream()) {
-                byte[] input = requestBody.toString().getBytes("utf-8");
-                os.write(input, 0, input.length);
-            }
+    // Like sendMessage, but the reply is delivered piece by piece while the model generates it
+    public void sendMessageStreaming(String userMessage, List<Post> userPosts, StreamCallback callback) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            callback.onError("API key not configured");
+            return;
+        }
 
-            int responseCode = connection.getResponseCode();
+        if (userMessage == null || userMessage.trim().isEmpty()) {
+            callback.onError("Message cannot be empty");
+            return;
+        }
 
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                String response = parseResponse(connection);
+        executor.execute(() -> {
+            try {
+                String response = httpClient.streamCompletion(apiKey,
+                        buildChatRequestBody(userMessage, userPosts), callback::onPartial);
                 updateConversationHistory(userMessage, response);
-                return response;
-            } else {
-                String errorMessage = readErrorStream(connection);
-                throw new IOException("API call failed with code " + responseCode + ": " + errorMessage);
+                callback.onResponse(response);
+            } catch (Exception e) {
+                Log.e(TAG, "Error in streaming chat", e);
+                callback.onError(e.getMessage());
             }
+        });
+    }
 
-        } finally {
-            connection.disconnect();
-        }
+    private String callChatAPI(String userMessage, List<Post> userPosts) throws IOException, JSONException {
+        String response = httpClient.complete(apiKey, buildChatRequestBody(userMessage, userPosts));
+        updateConversationHistory(userMessage, response);
+        return response;
     }
 
     private JSONObject buildChatRequestBody(String userMessage, List<Post> userPosts) throws JSONException {
@@ -164,40 +161,6 @@ public class AIChatService {
         return prompt.toString();
     }
 
-    private String parseResponse(HttpURLConnection connection) throws IOException, JSONException {
-        StringBuilder response = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(connection.getInputStream(), "utf-8"))) {
-            String responseLine;
-            while ((responseLine = br.readLine()) != null) {
-                response.append(responseLine.trim());
-            }
-        }
-
-        JSONObject jsonResponse = new JSONObject(response.toString());
-        JSONArray choices = jsonResponse.getJSONArray("choices");
-
-        if (choices.length() > 0) {
-            JSONObject choice = choices.getJSONObject(0);
-            JSONObject message = choice.getJSONObject("message");
-            return message.getString("content").trim();
-        }
-
-        throw new JSONException("No choices in API response");
-    }
-
-    private String readErrorStream(HttpURLConnection connection) {
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(connection.getErrorStream(), "utf-8"))) {
-            StringBuilder response = new StringBuilder();
-            String responseLine;
-            while ((responseLine = br.readLine()) != null) {
-                response.append(responseLine.trim());
-            }
-            return response.toString();
-        } catch (Exception e) {
-            return "Unknown error";
-        }
-    }
-
     private void updateConversationHistory(String userMessage, String aiResponse) {
         try {
             JSONObject userMsg = new JSONObject();
@@ -224,6 +187,6 @@ public class AIChatService {
     }
 
     public void shutdown() {
-        executorService.shutdown();
+        executor.shutdown();
     }
 }
\ No newline at end of file
@@ -0,0 +1,225 @@
+package com.example.smarttimeline.ai;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+public class AIHttpClient {
+
+    // One client for every AI request in the process. Connections to the endpoint stay in the pool
+    // between summaries and chat turns, so only the first request pays for the TCP and TLS
+    // handshakes; OkHttp negotiates HTTP/2 when the server offers it and requests and inflates gzip
+    // bodies itself.
+
+    static final String API_ENDPOINT = "https://api.groq.com/openai/v1/chat/completions";
+    private static final long CONNECT_TIMEOUT_SECONDS = 30;
+    private static final long READ_TIMEOUT_SECONDS = 30;
+    private static final int MAX_IDLE_CONNECTIONS = 2;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private static volatile AIHttpClient instance;
+
+    private final OkHttpClient client;
+    private final String endpoint;
+
+    AIHttpClient(OkHttpClient client, String endpoint) {
+        this.client = client;
+        this.endpoint = endpoint;
+    }
+
+    public static AIHttpClient getInstance() {
+        if (instance == null) {
+            synchronized (AIHttpClient.class) {
+                if (instance == null) {
+                    instance = new AIHttpClient(newClient(), API_ENDPOINT);
+                }
+            }
+        }
+        return instance;
+    }
+
+    static OkHttpClient newClient() {
+        return new OkHttpClient.Builder()
+                .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+
+    // Reads a successful response body as it arrives instead of collecting it first
+    public interface BodyReader<T> {
+        T read(BufferedSource source) throws IOException, JSONException;
+    }
+
+    // Receives each piece of text of a streamed completion as it arrives
+    public interface DeltaListener {
+        void onDelta(String delta);
+    }
+
+    public <T> T post(String apiKey, JSONObject requestBody, BodyReader<T> reader) throws IOException, JSONException {
+        return post(apiKey, requestBody, "application/json", reader);
+    }
+
+    private <T> T post(String apiKey, JSONObject requestBody, String accept, BodyReader<T> reader)
+            throws IOException, JSONException {
+        // Closing the response returns the connection to the pool once the body is consumed
+        try (Response response = client.newCall(buildRequest(apiKey, requestBody, accept)).execute()) {
+            return readResponse(response, reader);
+        }
+    }
+
+    private Request buildRequest(String apiKey, JSONObject requestBody, String accept) {
+        return new Request.Builder()
+                .url(endpoint)
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Accept", accept)
+                .post(RequestBody.create(requestBody.toString(), JSON))
+                .build();
+    }
+
+    private static <T> T readResponse(Response response, BodyReader<T> reader) throws IOException, JSONException {
+        ResponseBody body = response.body();
+        if (!response.isSuccessful()) {
+            throw new IOException("API call failed with code " + response.code() + ": " + readError(body));
+        }
+        if (body == null) {
+            throw new IOException("Empty API response");
+        }
+        return reader.read(body.source());
+    }
+
+    // The assistant text of a non-streaming chat completion
+    public String complete(String apiKey, JSONObject requestBody) throws IOException, JSONException {
+        return post(apiKey, requestBody, AIHttpClient::readCompletion);
+    }
+
+    public interface CompletionCallback {
+        void onSuccess(String text);
+        void onFailure(Exception e);
+    }
+
+    // Like complete, but runs on OkHttp's dispatcher threads so several requests can be in flight
+    // without holding a thread of the app's pools each
+    public void completeAsync(String apiKey, JSONObject requestBody, CompletionCallback callback) {
+        client.newCall(buildRequest(apiKey, requestBody, "application/json")).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                callback.onFailure(e);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                String text;
+                try (Response closing = response) {
+                    text = readResponse(closing, AIHttpClient::readCompletion);
+                } catch (IOException | JSONException e) {
+                    callback.onFailure(e);
+                    return;
+                }
+                callback.onSuccess(text);
+            }
+        });
+    }
+
+    // Sends the request with stream=true and reads the server-sent events as they arrive, so the
+    // first words reach the listener long before the completion ends. Returns the whole text.
+    public String streamCompletion(String apiKey, JSONObject requestBody, DeltaListener listener)
+            throws IOException, JSONException {
+        requestBody.put("stream", true);
+        return post(apiKey, requestBody, "text/event-stream", source -> readEventStream(source, listener));
+    }
+
+    static String readEventStream(BufferedSource source, DeltaListener listener) throws IOException, JSONException {
+        StringBuilder text = new StringBuilder();
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                // A blank line ends the event
+                if (data.length() > 0 && !dispatchEvent(data.toString(), text, listener)) {
+                    return text.toString().trim();
+                }
+                data.setLength(0);
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                int start = line.startsWith("data: ") ? 6 : 5;
+                data.append(line, start, line.length());
+            }
+            // Comments and the other SSE fields carry nothing the chat needs
+        }
+        if (data.length() > 0) {
+            dispatchEvent(data.toString(), text, listener);
+        }
+        return text.toString().trim();
+    }
+
+    // False once the server signals the end of the stream
+    private static boolean dispatchEvent(String data, StringBuilder text, DeltaListener listener)
+            throws IOException, JSONException {
+        if ("[DONE]".equals(data)) {
+            return false;
+        }
+
+        JSONObject event = new JSONObject(data);
+        if (event.has("error")) {
+            throw new IOException("API stream failed: " + event.get("error"));
+        }
+        JSONArray choices = event.optJSONArray("choices");
+        if (choices == null || choices.length() == 0) {
+            return true;
+        }
+        JSONObject delta = choices.getJSONObject(0).optJSONObject("delta");
+        if (delta != null && !delta.isNull("content")) {
+            String content = delta.getString("content");
+            if (!content.isEmpty()) {
+                text.append(content);
+                listener.onDelta(content);
+            }
+        }
+        return true;
+    }
+
+    private static String readCompletion(BufferedSource source) throws IOException, JSONException {
+        JSONObject jsonResponse = new JSONObject(source.readUtf8());
+        JSONArray choices = jsonResponse.getJSONArray("choices");
+
+        if (choices.length() > 0) {
+            JSONObject choice = choices.getJSONObject(0);
+            JSONObject message = choice.getJSONObject("message");
+            return message.getString("content").trim();
+        }
+
+        throw new JSONException("No choices in API response");
+    }
+
+    private static String readError(ResponseBody body) {
+        if (body == null) {
+            return "Unknown error";
+        }
+        try {
+            return body.string().trim();
+        } catch (IOException e) {
+            return "Unknown error";
+        }
+    }
+}
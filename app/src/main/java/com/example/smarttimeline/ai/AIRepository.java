@@ -3,27 +3,51 @@ package com.example.smarttimeline.ai;
 import android.app.Application;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.example.smarttimeline.data.dao.PostDao;
+import com.example.smarttimeline.data.dao.SummaryCacheDao;
+import com.example.smarttimeline.data.database.AppDatabase;
+import com.example.smarttimeline.data.entity.CachedSummary;
 import com.example.smarttimeline.data.entity.Post;
 import com.example.smarttimeline.data.model.AISummary;
+import com.example.smarttimeline.util.AppExecutors;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class AIRepository {
 
+    private static final String TAG = "AIRepository";
     private static final String PREFS_NAME = "ai_prefs";
     private static final String KEY_API_KEY = "api_key";
+    // Summaries nobody has asked for in this long are dropped. Rolling ranges such as the last seven
+    // days get a new key every day and are never asked for again, so this bounds how many pile up.
+    private static final long SUMMARY_CACHE_MAX_UNUSED_MS = 60L * 24 * 60 * 60 * 1000;
 
     private final AIService aiService;
+    private final HierarchicalSummarizer summarizer;
+    private final PostDao postDao;
+    private final SummaryCacheDao summaryCacheDao;
+    private final Executor networkExecutor;
+    private final Executor coordinatorExecutor;
+    private final Executor ioExecutor;
     private final SharedPreferences sharedPreferences;
     private final MutableLiveData<String> summaryStatus;
     private final MutableLiveData<AISummary> generatedSummary;
 
     public AIRepository(Context context) {
         this.aiService = new AIService();
+        AppDatabase database = AppDatabase.getInstance(context);
+        this.postDao = database.postDao();
+        this.summaryCacheDao = database.summaryCacheDao();
+        this.summarizer = new HierarchicalSummarizer(aiService, summaryCacheDao);
+        this.networkExecutor = AppExecutors.getInstance().network();
+        this.coordinatorExecutor = AppExecutors.getInstance().coordinator();
+        this.ioExecutor = AppExecutors.getInstance().io();
         this.sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.summaryStatus = new MutableLiveData<>();
         this.generatedSummary = new MutableLiveData<>();
@@ -69,42 +93,120 @@ public class AIRepository {
         return generatedSummary;
     }
 
-    public void generateAISummary(List<Post> posts, String period) {
+    // Summarizes the posts between startDate and endDate. A summary made earlier from exactly the same
+    // posts and prompt is served from disk; only a changed range goes to the network.
+    public void generateAISummary(long startDate, long endDate, String period) {
         if (!isApiKeyConfigured()) {
             summaryStatus.postValue("API key not configured. Please set it in Settings.");
             return;
         }
 
-        if (posts == null || posts.isEmpty()) {
+        networkExecutor.execute(() -> summarizeRange(startDate, endDate, period, null));
+    }
+
+    // Results always go to generatedSummary and summaryStatus; callback may be null
+    private void summarizeRange(long startDate, long endDate, String period, SummarySyncCallback callback) {
+        String fingerprint = SummaryFingerprint.of(postDao.getPostVersionsSync(startDate, endDate));
+        CachedSummary cached = summaryCacheDao.getFreshSync(period, startDate, endDate,
+                AIService.PROMPT_VERSION, fingerprint);
+        if (cached != null) {
+            summaryCacheDao.markUsed(period, startDate, endDate, AIService.PROMPT_VERSION, System.currentTimeMillis());
+            generatedSummary.postValue(toSummary(cached));
+            summaryStatus.postValue("Summary generated successfully");
+            if (callback != null) {
+                callback.onSuccess();
+            }
+            return;
+        }
+
+        List<Post> posts = postDao.getPostsByDateRangeSync(startDate, endDate);
+        if (posts.isEmpty()) {
             summaryStatus.postValue("No posts available to summarize");
+            if (callback != null) {
+                callback.onError("No posts available to summarize");
+            }
             return;
         }
 
         summaryStatus.postValue("Generating summary...");
 
+        if (summarizer.shouldSplit(posts, startDate, endDate, period)) {
+            // The part requests run on OkHttp's threads; waiting for them ties up a coordinator thread
+            // rather than one of the network pool's
+            coordinatorExecutor.execute(() -> {
+                try {
+                    String summaryText = summarizer.summarize(posts, startDate, endDate, period);
+                    publishSummary(summaryText, posts, period, startDate, endDate, fingerprint, callback);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error generating hierarchical summary", e);
+                    publishError(e.getMessage(), callback);
+                }
+            });
+            return;
+        }
+
         aiService.generateSummary(posts, period, new AIService.SummaryCallback() {
             @Override
             public void onSuccess(String summaryText) {
-                AISummary summary = new AISummary(summaryText, period);
-                summary.setPostCount(posts.size());
-
-                String dominantMood = calculateDominantMood(posts);
-                summary.setDominantMood(dominantMood);
-
-                String keyThemes = extractKeyThemes(posts);
-                summary.setKeyThemes(keyThemes);
-
-                generatedSummary.postValue(summary);
-                summaryStatus.postValue("Summary generated successfully");
+                publishSummary(summaryText, posts, period, startDate, endDate, fingerprint, callback);
             }
 
             @Override
             public void onError(String error) {
-                summaryStatus.postValue("Error: " + error);
+                publishError(error, callback);
             }
         });
     }
 
+    private void publishSummary(String summaryText, List<Post> posts, String period, long startDate, long endDate,
+                                String fingerprint, SummarySyncCallback callback) {
+        AISummary summary = new AISummary(summaryText, period);
+        summary.setPostCount(posts.size());
+
+        String dominantMood = calculateDominantMood(posts);
+        summary.setDominantMood(dominantMood);
+
+        String keyThemes = extractKeyThemes(posts);
+        summary.setKeyThemes(keyThemes);
+
+        ioExecutor.execute(() -> storeSummary(summary, startDate, endDate, fingerprint));
+        generatedSummary.postValue(summary);
+        summaryStatus.postValue("Summary generated successfully");
+        if (callback != null) {
+            callback.onSuccess();
+        }
+    }
+
+    private void publishError(String error, SummarySyncCallback callback) {
+        summaryStatus.postValue("Error: " + error);
+        if (callback != null) {
+            callback.onError(error);
+        }
+    }
+
+    private void storeSummary(AISummary summary, long startDate, long endDate, String fingerprint) {
+        CachedSummary cached = new CachedSummary(summary.getPeriod(), startDate, endDate,
+                AIService.PROMPT_VERSION, fingerprint);
+        cached.setSummaryText(summary.getSummaryText());
+        cached.setPostCount(summary.getPostCount());
+        cached.setDominantMood(summary.getDominantMood());
+        cached.setKeyThemes(summary.getKeyThemes());
+        cached.setGeneratedAt(summary.getGeneratedTimestamp());
+        long now = System.currentTimeMillis();
+        cached.setLastUsedAt(now);
+        summaryCacheDao.put(cached);
+        summaryCacheDao.deleteLastUsedBefore(now - SUMMARY_CACHE_MAX_UNUSED_MS);
+    }
+
+    private static AISummary toSummary(CachedSummary cached) {
+        AISummary summary = new AISummary(cached.getSummaryText(), cached.getPeriod());
+        summary.setGeneratedTimestamp(cached.getGeneratedAt());
+        summary.setPostCount(cached.getPostCount());
+        summary.setDominantMood(cached.getDominantMood());
+        summary.setKeyThemes(cached.getKeyThemes());
+        return summary;
+    }
+
     private String calculateDominantMood(List<Post> posts) {
         int[] moodCounts = new int[10];
         String[] moods = {"Happy", "Sad", "Excited", "Calm", "Anxious", "Grateful", "Frustrated", "Motivated", "Neutral", "Other"};
@@ -166,39 +268,13 @@ public class AIRepository {
         void onError(String error);
     }
 
-    public void generateAISummarySync(List<Post> posts, String period, SummarySyncCallback callback) {
+    // For callers already on a background thread; the result is cached like generateAISummary's
+    public void generateAISummarySync(long startDate, long endDate, String period, SummarySyncCallback callback) {
         if (!isApiKeyConfigured()) {
             callback.onError("API key not configured. Please set it in Settings.");
             return;
         }
 
-        if (posts == null || posts.isEmpty()) {
-            callback.onError("No posts available to summarize");
-            return;
-        }
-
-        aiService.generateSummary(posts, period, new AIService.SummaryCallback() {
-            @Override
-            public void onSuccess(String summaryText) {
-                AISummary summary = new AISummary(summaryText, period);
-                summary.setPostCount(posts.size());
-
-                String dominantMood = calculateDominantMood(posts);
-                summary.setDominantMood(dominantMood);
-
-                String keyThemes = extractKeyThemes(posts);
-                summary.setKeyThemes(keyThemes);
-
-                generatedSummary.postValue(summary);
-                summaryStatus.postValue("Summary generated successfully");
-                callback.onSuccess();
-            }
-
-            @Override
-            public void onError(String error) {
-                summaryStatus.postValue("Error: " + error);
-                callback.onError(error);
-            }
-        });
+        summarizeRange(startDate, endDate, period, callback);
     }
 }
\ No newline at end of file
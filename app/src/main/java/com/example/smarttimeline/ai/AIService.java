@@ -4,32 +4,32 @@ import android.content.Context;
 import android.util.Log;
 
 import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.util.AppExecutors;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class AIService {
 
     private static final String TAG = "AIService";
-    private static final String API_ENDPOINT = "https://api.groq.com/openai/v1/chat/completions";
-    private static final int TIMEOUT = 30000;
-
-    private final ExecutorService executorService;
+    // Part of every cached summary's key; bump it when a prompt or the request parameters change
+    static final int PROMPT_VERSION = 3;
+    // Estimated prompt tokens; PromptPacker picks and shortens posts to stay within them
+    private static final int SUMMARY_PROMPT_TOKENS = 2000;
+    private static final int PART_PROMPT_TOKENS = 1200;
+    private static final int POST_FORMAT = PromptPacker.FORMAT_MOOD | PromptPacker.FORMAT_TAGS;
+
+    private final AppExecutors.SerialExecutor executor;
+    private final AIHttpClient httpClient;
     private String apiKey;
 
     public AIService() {
-        this.executorService = Executors.newSingleThreadExecutor();
+        this.executor = AppExecutors.getInstance().newSerialExecutor(AppExecutors.getInstance().network());
+        this.httpClient = AIHttpClient.getInstance();
     }
 
     public void setApiKey(String apiKey) {
@@ -52,9 +52,9 @@ public class AIService {
             return;
         }
 
-        executorService.execute(() -> {
+        executor.execute(() -> {
             try {
-                String prompt = buildPrompt(posts, period);
+                String prompt = summaryPrompt(posts, period).build();
                 String summary = callAPI(prompt);
                 callback.onSuccess(summary);
             } catch (Exception e) {
@@ -64,75 +64,95 @@ public class AIService {
         });
     }
 
-    private String buildPrompt(List<Post> posts, String period) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("Analyze the following posts from a ").append(period.toLowerCase())
+    // Whether the one-request summary prompt includes every post; ranges where it would leave some
+    // out go through HierarchicalSummarizer
+    boolean fitsSummaryPrompt(List<Post> posts, String period) {
+        PromptPacker packer = summaryPrompt(posts, period);
+        packer.build();
+        return packer.getOmittedPosts() == 0;
+    }
+
+    private static PromptPacker summaryPrompt(List<Post> posts, String period) {
+        StringBuilder instructions = new StringBuilder();
+        instructions.append("Analyze the following posts from a ").append(period.toLowerCase())
                 .append(" period and provide a concise, insightful summary. ");
-        prompt.append("Include:\n");
-        prompt.append("1. Overall themes and topics\n");
-        prompt.append("2. Emotional patterns\n");
-        prompt.append("3. Key highlights or notable events\n");
-        prompt.append("4. Any patterns or trends\n\n");
-        prompt.append("Posts:\n");
+        instructions.append("Include:\n");
+        instructions.append("1. Overall themes and topics\n");
+        instructions.append("2. Emotional patterns\n");
+        instructions.append("3. Key highlights or notable events\n");
+        instructions.append("4. Any patterns or trends\n\n");
+
+        PromptPacker packer = new PromptPacker(SUMMARY_PROMPT_TOKENS).instructions(instructions.toString());
+        AIUtils.addStats(packer, posts);
+        return packer
+                .posts("Posts:\n", posts, POST_FORMAT)
+                .closing("\nProvide a summary in 3-5 sentences.");
+    }
 
-        for (int i = 0; i < posts.size() && i < 50; i++) {
-            Post post = posts.get(i);
-            prompt.append("- ");
-            if (post.getMood() != null && !post.getMood().isEmpty()) {
-                prompt.append("[").append(post.getMood()).append("] ");
-            }
-            // ADD NULL CHECK:
-            if (post.getText() != null) {
-                prompt.append(post.getText());
-            }
-            if (post.getTags() != null && !post.getTags().isEmpty()) {
-                prompt.append(" (Tags: ").append(String.join(", ", post.getTags())).append(")");
-            }
-            prompt.append("\n");
-        }
+    // One part of a long period, e.g. a week of a year; the result is later combined with the others
+    void summarizePartAsync(List<Post> posts, String label, AIHttpClient.CompletionCallback callback) {
+        completeAsync(partPrompt(posts, label).build(), callback);
+    }
 
-        if (posts.size() > 50) {
-            prompt.append("... and ").append(posts.size() - 50).append(" more posts\n");
+    // How many of posts, from the first, one part prompt includes without leaving any out; at least one
+    int partCapacity(List<Post> posts, String label) {
+        int fits = 1;
+        int tooMany = posts.size() + 1;
+        while (tooMany - fits > 1) {
+            int count = (fits + tooMany) >>> 1;
+            PromptPacker packer = partPrompt(posts.subList(0, count), label);
+            packer.build();
+            if (packer.getOmittedPosts() == 0) {
+                fits = count;
+            } else {
+                tooMany = count;
+            }
         }
+        return Math.min(fits, posts.size());
+    }
 
-        prompt.append("\nProvide a summary in 3-5 sentences.");
-
-        return prompt.toString();
+    private static PromptPacker partPrompt(List<Post> posts, String label) {
+        return new PromptPacker(PART_PROMPT_TOKENS)
+                .instructions("Summarize the following journal posts written " + label
+                        + ". Note the main themes, the emotional tone and any notable events.\n\n")
+                .posts("Posts:\n", posts, POST_FORMAT)
+                .closing("\nProvide a summary in 2-3 sentences.");
     }
 
-    private String callAPI(String prompt) throws IOException, JSONException {
-        URL url = new URL(API_ENDPOINT);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    // Merges summaries of consecutive parts, oldest first, into one summary for the whole period
+    void combineSummariesAsync(List<String> labels, List<String> summaries, String period,
+                               AIHttpClient.CompletionCallback callback) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Below are summaries of consecutive parts of a ").append(period.toLowerCase())
+                .append(" period of someone's journal, oldest first. Combine them into a concise, insightful summary ")
+                .append("of the whole period. Include:\n");
+        prompt.append("1. Overall themes and topics\n");
+        prompt.append("2. Emotional patterns and how they changed\n");
+        prompt.append("3. Key highlights or notable events\n");
+        prompt.append("4. Any patterns or trends\n\n");
+        for (int i = 0; i < summaries.size(); i++) {
+            prompt.append(labels.get(i)).append(":\n").append(summaries.get(i)).append("\n\n");
+        }
+        prompt.append("Provide a summary in 3-5 sentences.");
+        completeAsync(prompt.toString(), callback);
+    }
 
+    private void completeAsync(String prompt, AIHttpClient.CompletionCallback callback) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            callback.onFailure(new IOException("API key not configured"));
+            return;
+        }
         try {
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("Authorization", "Bearer " + apiKey);
-            connection.setDoOutput(true);
-            connection.setConnectTimeout(TIMEOUT);
-            connection.setReadTimeout(TIMEOUT);
-
-            JSONObject requestBody = buildRequestBody(prompt);
-
-            try (OutputStream os = connection.getOutputStream()) {
-                byte[] input = requestBody.toString().getBytes("utf-8");
-                os.write(input, 0, input.length);
-            }
-
-            int responseCode = connection.getResponseCode();
-
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                return parseResponse(connection);
-            } else {
-                String errorMessage = readErrorStream(connection);
-                throw new IOException("API call failed with code " + responseCode + ": " + errorMessage);
-            }
-
-        } finally {
-            connection.disconnect();
+            httpClient.completeAsync(apiKey, buildRequestBody(prompt), callback);
+        } catch (JSONException e) {
+            callback.onFailure(e);
         }
     }
 
+    private String callAPI(String prompt) throws IOException, JSONException {
+        return httpClient.complete(apiKey, buildRequestBody(prompt));
+    }
+
     private JSONObject buildRequestBody(String prompt) throws JSONException {
         JSONObject requestBody = new JSONObject();
         requestBody.put("model", "llama-3.3-70b-versatile");
@@ -150,41 +170,7 @@ public class AIService {
         return requestBody;
     }
 
-    private String parseResponse(HttpURLConnection connection) throws IOException, JSONException {
-        StringBuilder response = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(connection.getInputStream(), "utf-8"))) {
-            String responseLine;
-            while ((responseLine = br.readLine()) != null) {
-                response.append(responseLine.trim());
-            }
-        }
-
-        JSONObject jsonResponse = new JSONObject(response.toString());
-        JSONArray choices = jsonResponse.getJSONArray("choices");
-
-        if (choices.length() > 0) {
-            JSONObject choice = choices.getJSONObject(0);
-            JSONObject message = choice.getJSONObject("message");
-            return message.getString("content").trim();
-        }
-
-        throw new JSONException("No choices in API response");
-    }
-
-    private String readErrorStream(HttpURLConnection connection) {
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(connection.getErrorStream(), "utf-8"))) {
-            StringBuilder response = new StringBuilder();
-            String responseLine;
-            while ((responseLine = br.readLine()) != null) {
-                response.append(responseLine.trim());
-            }
-            return response.toString();
-        } catch (Exception e) {
-            return "Unknown error";
-        }
-    }
-
     public void shutdown() {
-        executorService.shutdown();
+        executor.shutdown();
     }
 }
\ No newline at end of file
@@ -12,8 +12,6 @@ import com.example.smarttimeline.data.entity.Post;
 import com.example.smarttimeline.util.DateUtils;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class AISummaryWorker extends Worker {
 
@@ -38,16 +36,13 @@ public class AISummaryWorker extends Worker {
                 return Result.success();
             }
 
-            long endDate = System.currentTimeMillis();
-            long startDate = DateUtils.getWeeksAgo(1);
+            // Same whole-day range as SummaryViewModel's weekly summary, so the summary screen is
+            // served this result from the cache
+            long endDate = DateUtils.getEndOfDay(System.currentTimeMillis());
+            long startDate = DateUtils.getStartOfDay(DateUtils.getDaysAgo(6));
 
-            // Execute database query synchronously using Executor
-            ExecutorService executor = Executors.newSingleThreadExecutor();
-            List<Post> posts = executor.submit(() ->
-                    getPostsDirectly(database, startDate, endDate)
-            ).get();
-
-            executor.shutdown();
+            // doWork already runs on a WorkManager background thread, so query directly
+            List<Post> posts = getPostsDirectly(database, startDate, endDate);
 
             if (posts == null || posts.isEmpty()) {
                 Log.d(TAG, "No posts found for weekly summary");
@@ -61,7 +56,7 @@ public class AISummaryWorker extends Worker {
             final boolean[] completed = {false};
             final boolean[] success = {false};
 
-            aiRepository.generateAISummarySync(posts, "Weekly", new AIRepository.SummarySyncCallback() {
+            aiRepository.generateAISummarySync(startDate, endDate, "Weekly", new AIRepository.SummarySyncCallback() {
                 @Override
                 public void onSuccess() {
                     synchronized (lock) {
@@ -1,151 +1,140 @@
 package com.example.smarttimeline.ai;
 
 import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.util.DateUtils;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 public class AIUtils {
 
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-    private static final int MAX_PROMPT_LENGTH = 4000;
+    // Estimated tokens per prompt; the model allows far more, but smaller requests answer faster
+    private static final int PROMPT_BUDGET_TOKENS = 1500;
+    private static final int QUICK_PROMPT_BUDGET_TOKENS = 800;
 
     public static String buildDetailedSummaryPrompt(List<Post> posts, String period) {
-        StringBuilder prompt = new StringBuilder();
+        StringBuilder instructions = new StringBuilder();
 
-        prompt.append("You are an AI assistant helping to summarize personal journal entries. ");
-        prompt.append("Analyze the following ").append(posts.size()).append(" posts from a ");
-        prompt.append(period.toLowerCase()).append(" period.\n\n");
+        instructions.append("You are an AI assistant helping to summarize personal journal entries. ");
+        instructions.append("Analyze the following ").append(posts.size()).append(" posts from a ");
+        instructions.append(period.toLowerCase()).append(" period.\n\n");
 
-        prompt.append("Provide a comprehensive summary that includes:\n");
-        prompt.append("1. Main themes and recurring topics\n");
-        prompt.append("2. Emotional journey and mood patterns\n");
-        prompt.append("3. Notable events or milestones\n");
-        prompt.append("4. Personal growth or changes observed\n");
-        prompt.append("5. Areas of focus or concern\n\n");
+        instructions.append("Provide a comprehensive summary that includes:\n");
+        instructions.append("1. Main themes and recurring topics\n");
+        instructions.append("2. Emotional journey and mood patterns\n");
+        instructions.append("3. Notable events or milestones\n");
+        instructions.append("4. Personal growth or changes observed\n");
+        instructions.append("5. Areas of focus or concern\n\n");
 
-        prompt.append("Posts (chronological order):\n\n");
-        prompt.append(formatPostsForPrompt(posts, 40));
-
-        prompt.append("\n\nProvide a thoughtful summary in 4-6 sentences that captures the essence of this period.");
-
-        return truncatePrompt(prompt.toString());
+        PromptPacker packer = new PromptPacker(PROMPT_BUDGET_TOKENS).instructions(instructions.toString());
+        addStats(packer, posts);
+        return packer
+                .posts("Posts (chronological order):\n\n", posts,
+                        PromptPacker.FORMAT_DATE | PromptPacker.FORMAT_LOCATION)
+                .closing("\n\nProvide a thoughtful summary in 4-6 sentences that captures the essence of this period.")
+                .build();
     }
 
     public static String buildInsightPrompt(List<Post> posts, String period) {
-        StringBuilder prompt = new StringBuilder();
-
-        prompt.append("Analyze these journal entries and provide 3-5 key insights about the person's ");
-        prompt.append(period.toLowerCase()).append(" experience.\n\n");
+        StringBuilder instructions = new StringBuilder();
 
-        prompt.append("Focus on:\n");
-        prompt.append("- Patterns in behavior or thoughts\n");
-        prompt.append("- Emotional well-being\n");
-        prompt.append("- Progress toward goals or challenges\n");
-        prompt.append("- Social interactions and relationships\n\n");
+        instructions.append("Analyze these journal entries and provide 3-5 key insights about the person's ");
+        instructions.append(period.toLowerCase()).append(" experience.\n\n");
 
-        prompt.append("Posts:\n");
-        prompt.append(formatPostsForPrompt(posts, 30));
+        instructions.append("Focus on:\n");
+        instructions.append("- Patterns in behavior or thoughts\n");
+        instructions.append("- Emotional well-being\n");
+        instructions.append("- Progress toward goals or challenges\n");
+        instructions.append("- Social interactions and relationships\n\n");
 
-        prompt.append("\n\nProvide insights in a supportive, constructive tone.");
-
-        return truncatePrompt(prompt.toString());
+        PromptPacker packer = new PromptPacker(PROMPT_BUDGET_TOKENS).instructions(instructions.toString());
+        addStats(packer, posts);
+        return packer
+                .posts("Posts:\n", posts, PromptPacker.FORMAT_DATE | PromptPacker.FORMAT_LOCATION)
+                .closing("\n\nProvide insights in a supportive, constructive tone.")
+                .build();
     }
 
     public static String buildMoodAnalysisPrompt(List<Post> posts, String period) {
-        StringBuilder prompt = new StringBuilder();
-
-        prompt.append("Analyze the emotional patterns in these journal entries from a ");
-        prompt.append(period.toLowerCase()).append(" period.\n\n");
+        StringBuilder instructions = new StringBuilder();
 
-        prompt.append("Provide:\n");
-        prompt.append("1. Overall emotional trend (improving, declining, stable)\n");
-        prompt.append("2. Dominant emotions and their frequency\n");
-        prompt.append("3. Possible triggers for mood changes\n");
-        prompt.append("4. Recommendations for emotional well-being\n\n");
+        instructions.append("Analyze the emotional patterns in these journal entries from a ");
+        instructions.append(period.toLowerCase()).append(" period.\n\n");
 
-        prompt.append("Posts with mood indicators:\n");
-        prompt.append(formatPostsWithMood(posts, 35));
+        instructions.append("Provide:\n");
+        instructions.append("1. Overall emotional trend (improving, declining, stable)\n");
+        instructions.append("2. Dominant emotions and their frequency\n");
+        instructions.append("3. Possible triggers for mood changes\n");
+        instructions.append("4. Recommendations for emotional well-being\n\n");
 
-        prompt.append("\n\nProvide analysis in 3-4 sentences.");
+        List<Post> withMood = new ArrayList<>();
+        for (Post post : posts) {
+            if (post.getMood() != null && !post.getMood().isEmpty()) {
+                withMood.add(post);
+            }
+        }
 
-        return truncatePrompt(prompt.toString());
+        PromptPacker packer = new PromptPacker(PROMPT_BUDGET_TOKENS).instructions(instructions.toString());
+        addStats(packer, posts);
+        return packer
+                .posts("Posts with mood indicators:\n", withMood,
+                        PromptPacker.FORMAT_DATE | PromptPacker.FORMAT_MOOD)
+                .closing("\n\nProvide analysis in 3-4 sentences.")
+                .build();
     }
 
     public static String buildQuickSummaryPrompt(List<Post> posts, String period) {
-        StringBuilder prompt = new StringBuilder();
+        StringBuilder instructions = new StringBuilder();
 
-        prompt.append("Summarize these ").append(posts.size()).append(" journal entries from ");
-        prompt.append(period.toLowerCase()).append(" in 2-3 sentences. ");
-        prompt.append("Focus on main themes and overall mood.\n\n");
+        instructions.append("Summarize these ").append(posts.size()).append(" journal entries from ");
+        instructions.append(period.toLowerCase()).append(" in 2-3 sentences. ");
+        instructions.append("Focus on main themes and overall mood.\n\n");
 
-        prompt.append(formatPostsForPrompt(posts, 25));
-
-        return truncatePrompt(prompt.toString());
+        return new PromptPacker(QUICK_PROMPT_BUDGET_TOKENS)
+                .instructions(instructions.toString())
+                .posts("", posts, PromptPacker.FORMAT_DATE)
+                .build();
     }
 
     public static String buildThemeExtractionPrompt(List<Post> posts) {
-        StringBuilder prompt = new StringBuilder();
-
-        prompt.append("Identify the top 5 recurring themes or topics in these journal entries. ");
-        prompt.append("List them as comma-separated keywords.\n\n");
-
-        prompt.append(formatPostsForPrompt(posts, 30));
-
-        prompt.append("\n\nRespond with only the theme keywords, separated by commas.");
-
-        return truncatePrompt(prompt.toString());
-    }
-
-    private static String formatPostsForPrompt(List<Post> posts, int maxPosts) {
-        StringBuilder formatted = new StringBuilder();
-        int count = Math.min(posts.size(), maxPosts);
-
-        for (int i = 0; i < count; i++) {
-            Post post = posts.get(i);
-            formatted.append(i + 1).append(". ");
-
-            if (post.getTimestamp() > 0) {
-                formatted.append("[").append(dateFormat.format(new Date(post.getTimestamp()))).append("] ");
-            }
-
-            formatted.append(post.getText());
-
-            if (post.getLocation() != null && !post.getLocation().isEmpty()) {
-                formatted.append(" (Location: ").append(post.getLocation()).append(")");
-            }
-
-            formatted.append("\n");
-        }
-
-        if (posts.size() > maxPosts) {
-            formatted.append("\n... and ").append(posts.size() - maxPosts).append(" more posts");
+        PromptPacker packer = new PromptPacker(PROMPT_BUDGET_TOKENS)
+                .instructions("Identify the top 5 recurring themes or topics in these journal entries. "
+                        + "List them as comma-separated keywords.\n\n");
+        String keywords = extractKeywordsFromPosts(posts);
+        if (!keywords.isEmpty()) {
+            packer.stat("Most used tags: " + keywords);
         }
-
-        return formatted.toString();
-    }
-
-    private static String formatPostsWithMood(List<Post> posts, int maxPosts) {
-        StringBuilder formatted = new StringBuilder();
-        int count = Math.min(posts.size(), maxPosts);
-
-        for (int i = 0; i < count; i++) {
-            Post post = posts.get(i);
-
-            String mood = post.getMood();
-            if (mood != null && !mood.isEmpty()) {
-                formatted.append("- [").append(mood).append("] ");
-                formatted.append(post.getText());
-                formatted.append("\n");
+        return packer
+                .posts("", posts, PromptPacker.FORMAT_TAGS)
+                .closing("\n\nRespond with only the theme keywords, separated by commas.")
+                .build();
+    }
+
+    // Counts over every post in the range, so the model sees the whole period even when the packer
+    // leaves posts out
+    static void addStats(PromptPacker packer, List<Post> posts) {
+        packer.stat("Total posts: " + posts.size());
+
+        Map<String, Integer> moods = analyzeMoodDistribution(posts);
+        if (!moods.isEmpty()) {
+            List<Map.Entry<String, Integer>> sortedMoods = new ArrayList<>(moods.entrySet());
+            sortedMoods.sort((a, b) -> b.getValue().compareTo(a.getValue()));
+            StringBuilder line = new StringBuilder("Moods: ");
+            for (int i = 0; i < sortedMoods.size(); i++) {
+                if (i > 0) {
+                    line.append(", ");
+                }
+                line.append(sortedMoods.get(i).getKey()).append(" (").append(sortedMoods.get(i).getValue()).append(')');
             }
+            packer.stat(line.toString());
         }
 
-        return formatted.toString();
+        String keywords = extractKeywordsFromPosts(posts);
+        if (!keywords.isEmpty()) {
+            packer.stat("Most used tags: " + keywords);
+        }
     }
 
     public static String extractKeywordsFromPosts(List<Post> posts) {
@@ -194,14 +183,6 @@ public class AIUtils {
         return formatted;
     }
 
-    public static String truncatePrompt(String prompt) {
-        if (prompt.length() <= MAX_PROMPT_LENGTH) {
-            return prompt;
-        }
-
-        return prompt.substring(0, MAX_PROMPT_LENGTH - 50) + "\n\n[Content truncated for length]";
-    }
-
     public static Map<String, Integer> analyzeMoodDistribution(List<Post> posts) {
         Map<String, Integer> distribution = new HashMap<>();
 
@@ -245,8 +226,8 @@ public class AIUtils {
     }
 
     public static String generatePeriodLabel(long startTimestamp, long endTimestamp) {
-        String startDate = dateFormat.format(new Date(startTimestamp));
-        String endDate = dateFormat.format(new Date(endTimestamp));
+        String startDate = DateUtils.formatDate(startTimestamp);
+        String endDate = DateUtils.formatDate(endTimestamp);
         return startDate + " - " + endDate;
     }
 
@@ -0,0 +1,318 @@
+package com.example.smarttimeline.ai;
+
+import com.example.smarttimeline.data.dao.SummaryCacheDao;
+import com.example.smarttimeline.data.entity.CachedSummary;
+import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.util.DateUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+class HierarchicalSummarizer {
+
+    // Summarizes a long period without dropping posts: each calendar week (cut at month boundaries)
+    // is summarized on its own, split into consecutive chunks when its posts do not all fit one part
+    // prompt. Parts are then combined level by level, per month, quarter and year, until few enough
+    // remain to combine into the final summary. Every part is cached under the fingerprint of its
+    // posts, so a yearly summary after one new post re-requests only that week and the parts above it.
+
+    static final String PERIOD_WEEK_PART = "Week part";
+    static final String PERIOD_MONTH_PART = "Month part";
+    static final String PERIOD_QUARTER_PART = "Quarter part";
+    static final String PERIOD_YEAR_PART = "Year part";
+    static final String PERIOD_GROUP_PART = "Group part";
+
+    private static final int MAX_PARALLEL_REQUESTS = 3;
+    // Summaries combined in one request, at every level
+    private static final int MAX_COMBINED_SUMMARIES = 8;
+    private static final long REQUEST_TIMEOUT_MINUTES = 2;
+
+    private final AIService aiService;
+    private final SummaryCacheDao summaryCacheDao;
+
+    HierarchicalSummarizer(AIService aiService, SummaryCacheDao summaryCacheDao) {
+        this.aiService = aiService;
+        this.summaryCacheDao = summaryCacheDao;
+    }
+
+    // More than one week, with posts the single summary prompt would leave out
+    boolean shouldSplit(List<Post> posts, long startDate, long endDate, String period) {
+        return partEnd(startDate, endDate) < endDate && !aiService.fitsSummaryPrompt(posts, period);
+    }
+
+    // Blocks until every part is summarized. Run it on AppExecutors.coordinator(): the requests run on
+    // OkHttp's threads, and waiting on them here must not hold a thread of a pool others depend on.
+    String summarize(List<Post> posts, long startDate, long endDate, String period)
+            throws IOException, InterruptedException {
+        List<Part> parts = new ArrayList<>();
+        for (Part week : splitIntoWeeks(posts, startDate, endDate)) {
+            parts.addAll(splitToFit(week));
+        }
+        summarizeLeaves(parts);
+
+        for (int level = 0; parts.size() > MAX_COMBINED_SUMMARIES; level++) {
+            parts = combineLevel(parts, level);
+        }
+        if (parts.size() == 1) {
+            return parts.get(0).summary;
+        }
+
+        Part whole = new Part(startDate, endDate, new ArrayList<>());
+        whole.children = parts;
+        combine(Collections.singletonList(whole), period);
+        return whole.summary;
+    }
+
+    // A week whose posts would not all make it into one part prompt becomes several consecutive
+    // chunks that each do; the first and last keep the week's own bounds
+    private List<Part> splitToFit(Part week) {
+        List<Post> remaining = new ArrayList<>(week.posts);
+        remaining.sort((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+
+        List<Part> chunks = new ArrayList<>();
+        while (!remaining.isEmpty()) {
+            int count = aiService.partCapacity(remaining, week.label());
+            List<Post> chunkPosts = new ArrayList<>(remaining.subList(0, count));
+            remaining = remaining.subList(count, remaining.size());
+
+            long start = chunks.isEmpty() ? week.start : chunkPosts.get(0).getTimestamp();
+            long end = remaining.isEmpty() ? week.end : remaining.get(0).getTimestamp() - 1;
+            chunks.add(new Part(start, end, chunkPosts));
+        }
+        return chunks;
+    }
+
+    private void summarizeLeaves(List<Part> leaves) throws IOException, InterruptedException {
+        List<Part> missing = new ArrayList<>();
+        for (Part leaf : leaves) {
+            if (!loadCached(leaf, PERIOD_WEEK_PART)) {
+                missing.add(leaf);
+            }
+        }
+
+        runBounded(missing, (leaf, callback) -> aiService.summarizePartAsync(leaf.posts, leaf.label(), callback));
+        for (Part leaf : missing) {
+            store(leaf, PERIOD_WEEK_PART);
+        }
+    }
+
+    // Groups consecutive parts of the same month, quarter or year (by level), at most
+    // MAX_COMBINED_SUMMARIES to a group, and combines each group. Parts never cross the boundaries of
+    // the level they are grouped at, since every level's unit contains whole units of the one below.
+    private List<Part> combineLevel(List<Part> parts, int level) throws IOException, InterruptedException {
+        String period = levelPeriod(level);
+        List<Part> groups = new ArrayList<>();
+        Part group = null;
+        long groupKey = 0;
+        for (Part part : parts) {
+            long key = levelKey(level, part.start);
+            if (group == null || key != groupKey || group.children.size() == MAX_COMBINED_SUMMARIES) {
+                group = new Part(part.start, part.end, new ArrayList<>());
+                group.children = new ArrayList<>();
+                groupKey = key;
+                groups.add(group);
+            }
+            group.end = part.end;
+            group.posts.addAll(part.posts);
+            group.children.add(part);
+        }
+
+        List<Part> toCombine = new ArrayList<>();
+        for (Part part : groups) {
+            if (part.children.size() == 1) {
+                part.summary = part.children.get(0).summary;
+            } else if (!loadCached(part, period)) {
+                toCombine.add(part);
+            }
+        }
+        combine(toCombine, levelAdjective(level));
+        for (Part part : toCombine) {
+            store(part, period);
+        }
+        return groups;
+    }
+
+    private static String levelPeriod(int level) {
+        switch (level) {
+            case 0:
+                return PERIOD_MONTH_PART;
+            case 1:
+                return PERIOD_QUARTER_PART;
+            case 2:
+                return PERIOD_YEAR_PART;
+            default:
+                return PERIOD_GROUP_PART;
+        }
+    }
+
+    private static String levelAdjective(int level) {
+        switch (level) {
+            case 0:
+                return "monthly";
+            case 1:
+                return "quarterly";
+            case 2:
+                return "yearly";
+            default:
+                return "longer";
+        }
+    }
+
+    // Parts with the same key share a month, quarter or year; past those, parts are only grouped by
+    // count
+    private static long levelKey(int level, long timestamp) {
+        switch (level) {
+            case 0:
+                return DateUtils.getStartOfMonth(timestamp);
+            case 1:
+                return DateUtils.getYear(timestamp) * 4L + DateUtils.getMonth(timestamp) / 3;
+            case 2:
+                return DateUtils.getYear(timestamp);
+            default:
+                return 0;
+        }
+    }
+
+    private void combine(List<Part> parts, String period) throws IOException, InterruptedException {
+        runBounded(parts, (part, callback) -> {
+            List<String> labels = new ArrayList<>(part.children.size());
+            List<String> summaries = new ArrayList<>(part.children.size());
+            for (Part child : part.children) {
+                labels.add(child.label());
+                summaries.add(child.summary);
+            }
+            aiService.combineSummariesAsync(labels, summaries, period, callback);
+        });
+    }
+
+    private interface Request {
+        void send(Part part, AIHttpClient.CompletionCallback callback);
+    }
+
+    // Sends one request per part with at most MAX_PARALLEL_REQUESTS in flight and fills in each
+    // part's summary. The first failure stops further requests and is rethrown.
+    private void runBounded(List<Part> parts, Request request) throws IOException, InterruptedException {
+        if (parts.isEmpty()) {
+            return;
+        }
+
+        Semaphore permits = new Semaphore(MAX_PARALLEL_REQUESTS);
+        CountDownLatch done = new CountDownLatch(parts.size());
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        for (Part part : parts) {
+            permits.acquire();
+            if (failure.get() != null) {
+                permits.release();
+                done.countDown();
+                continue;
+            }
+            request.send(part, new AIHttpClient.CompletionCallback() {
+                @Override
+                public void onSuccess(String text) {
+                    part.summary = text;
+                    permits.release();
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    failure.compareAndSet(null, e);
+                    permits.release();
+                    done.countDown();
+                }
+            });
+        }
+
+        if (!done.await(REQUEST_TIMEOUT_MINUTES * parts.size(), TimeUnit.MINUTES)) {
+            throw new IOException("Timed out summarizing " + parts.size() + " parts");
+        }
+        Exception error = failure.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error != null) {
+            throw new IOException(error.getMessage(), error);
+        }
+    }
+
+    private boolean loadCached(Part part, String period) {
+        part.fingerprint = SummaryFingerprint.ofPosts(part.posts);
+        CachedSummary cached = summaryCacheDao.getFreshSync(period, part.start, part.end,
+                AIService.PROMPT_VERSION, part.fingerprint);
+        if (cached == null) {
+            return false;
+        }
+        part.summary = cached.getSummaryText();
+        summaryCacheDao.markUsed(period, part.start, part.end, AIService.PROMPT_VERSION, System.currentTimeMillis());
+        return true;
+    }
+
+    private void store(Part part, String period) {
+        CachedSummary cached = new CachedSummary(period, part.start, part.end,
+                AIService.PROMPT_VERSION, part.fingerprint);
+        cached.setSummaryText(part.summary);
+        cached.setPostCount(part.posts.size());
+        long now = System.currentTimeMillis();
+        cached.setGeneratedAt(now);
+        cached.setLastUsedAt(now);
+        summaryCacheDao.put(cached);
+    }
+
+    // Calendar weeks cut at month boundaries and at the range's ends, oldest first; weeks without
+    // posts are left out
+    private static List<Part> splitIntoWeeks(List<Post> posts, long startDate, long endDate) {
+        TreeMap<Long, Part> weeksByStart = new TreeMap<>();
+        long start = startDate;
+        while (start <= endDate) {
+            long end = partEnd(start, endDate);
+            weeksByStart.put(start, new Part(start, end, new ArrayList<>()));
+            start = end + 1;
+        }
+
+        for (Post post : posts) {
+            Map.Entry<Long, Part> week = weeksByStart.floorEntry(post.getTimestamp());
+            if (week != null && post.getTimestamp() <= week.getValue().end) {
+                week.getValue().posts.add(post);
+            }
+        }
+
+        List<Part> weeks = new ArrayList<>();
+        for (Part week : weeksByStart.values()) {
+            if (!week.posts.isEmpty()) {
+                weeks.add(week);
+            }
+        }
+        return weeks;
+    }
+
+    private static long partEnd(long start, long endDate) {
+        return Math.min(Math.min(DateUtils.getEndOfWeek(start), DateUtils.getEndOfMonth(start)), endDate);
+    }
+
+    private static class Part {
+        final long start;
+        long end;
+        final List<Post> posts;
+        List<Part> children;
+        String fingerprint;
+        volatile String summary;
+
+        Part(long start, long end, List<Post> posts) {
+            this.start = start;
+            this.end = end;
+            this.posts = posts;
+        }
+
+        String label() {
+            return "from " + DateUtils.formatDate(start) + " to " + DateUtils.formatDate(end);
+        }
+    }
+}
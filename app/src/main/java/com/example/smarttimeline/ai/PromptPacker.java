@@ -0,0 +1,327 @@
+package com.example.smarttimeline.ai;
+
+import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.util.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PromptPacker {
+
+    // Assembles a prompt to a token budget instead of cutting it at a character count. Instructions
+    // and the closing request are always sent whole; stats lines get a share of what is left; posts
+    // fill the rest. When not every post fits, posts are picked across the whole period, favouring
+    // ones that say more, and long texts are shortened in proportion to their length.
+
+    public static final int FORMAT_DATE = 1;
+    public static final int FORMAT_MOOD = 1 << 1;
+    public static final int FORMAT_TAGS = 1 << 2;
+    public static final int FORMAT_LOCATION = 1 << 3;
+
+    private static final double CHARS_PER_TOKEN = 4.0;
+    // Share of the space after instructions that stats may use when there are posts too
+    private static final double STATS_SHARE = 0.2;
+    // A post shortened below this says too little to be worth its line
+    private static final int MIN_TEXT_TOKENS = 16;
+    // Posts are picked round-robin from this many stretches of the period, so none is left out
+    private static final int TIME_BUCKETS = 12;
+    private static final String ELLIPSIS = "\u2026";
+
+    private final int budgetTokens;
+    private final StringBuilder instructions = new StringBuilder();
+    private final List<String> stats = new ArrayList<>();
+    private final StringBuilder closing = new StringBuilder();
+    private String postsHeader = "";
+    private List<Post> posts = Collections.emptyList();
+    private int postFormat;
+
+    private int omittedPosts;
+    private int trimmedPosts;
+
+    public PromptPacker(int budgetTokens) {
+        this.budgetTokens = budgetTokens;
+    }
+
+    public PromptPacker instructions(String text) {
+        instructions.append(text);
+        return this;
+    }
+
+    // Optional context, dropped line by line from the end when space runs out
+    public PromptPacker stat(String line) {
+        stats.add(line);
+        return this;
+    }
+
+    public PromptPacker posts(String header, List<Post> posts, int format) {
+        this.postsHeader = header;
+        this.posts = posts != null ? posts : Collections.emptyList();
+        this.postFormat = format;
+        return this;
+    }
+
+    public PromptPacker closing(String text) {
+        closing.append(text);
+        return this;
+    }
+
+    public String build() {
+        omittedPosts = 0;
+        trimmedPosts = 0;
+
+        boolean hasPosts = !posts.isEmpty();
+        int fixed = estimateTokens(instructions) + estimateTokens(closing)
+                + (hasPosts ? estimateTokens(postsHeader) : 0);
+        int remaining = Math.max(0, budgetTokens - fixed);
+
+        StringBuilder statsSection = new StringBuilder();
+        int statsBudget = hasPosts ? (int) (remaining * STATS_SHARE) : remaining;
+        for (String line : stats) {
+            if (estimateTokens(statsSection) + estimateTokens(line) + 1 > statsBudget) {
+                break;
+            }
+            statsSection.append(line).append('\n');
+        }
+
+        StringBuilder prompt = new StringBuilder(instructions);
+        if (statsSection.length() > 0) {
+            prompt.append(statsSection).append('\n');
+        }
+        if (hasPosts) {
+            prompt.append(postsHeader);
+            prompt.append(packPosts(remaining - estimateTokens(statsSection)));
+        }
+        prompt.append(closing);
+        return prompt.toString();
+    }
+
+    // Posts left out of the last build
+    public int getOmittedPosts() {
+        return omittedPosts;
+    }
+
+    // Posts whose text was shortened in the last build
+    public int getTrimmedPosts() {
+        return trimmedPosts;
+    }
+
+    private String packPosts(int budget) {
+        List<Entry> ranked = rank(posts);
+        String omittedLine = "... and " + posts.size() + " more posts not shown\n";
+        int reserve = estimateTokens(omittedLine);
+
+        // Take posts in rank order while each can still get a useful minimum of text
+        List<Entry> chosen = new ArrayList<>();
+        int minimumCost = 0;
+        for (Entry entry : ranked) {
+            int cost = entry.fixedTokens + Math.min(entry.textTokens, MIN_TEXT_TOKENS);
+            boolean isLast = chosen.size() + 1 == ranked.size();
+            if (minimumCost + cost + (isLast ? 0 : reserve) > budget) {
+                break;
+            }
+            chosen.add(entry);
+            minimumCost += cost;
+        }
+        omittedPosts = posts.size() - chosen.size();
+
+        int textBudget = budget - (omittedPosts > 0 ? reserve : 0);
+        for (Entry entry : chosen) {
+            textBudget -= entry.fixedTokens;
+        }
+        allocateText(chosen, textBudget);
+
+        // Oldest first reads as a story
+        chosen.sort((a, b) -> Long.compare(a.post.getTimestamp(), b.post.getTimestamp()));
+        StringBuilder section = new StringBuilder();
+        for (Entry entry : chosen) {
+            section.append(entry.prefix).append(trim(entry.text, entry.textTokens, entry.allowance))
+                    .append(entry.suffix).append('\n');
+            if (entry.allowance < entry.textTokens) {
+                trimmedPosts++;
+            }
+        }
+        if (omittedPosts > 0) {
+            section.append("... and ").append(omittedPosts).append(" more posts not shown\n");
+        }
+        return section.toString();
+    }
+
+    // Scales every text by the same factor, never below MIN_TEXT_TOKENS, so long posts give up more
+    // than short ones; the factor is found by bisection since the floor makes it non-linear
+    private static void allocateText(List<Entry> entries, int textBudget) {
+        if (allocated(entries, 1.0) <= textBudget) {
+            for (Entry entry : entries) {
+                entry.allowance = entry.textTokens;
+            }
+            return;
+        }
+
+        double low = 0;
+        double high = 1;
+        for (int i = 0; i < 20; i++) {
+            double mid = (low + high) / 2;
+            if (allocated(entries, mid) <= textBudget) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        for (Entry entry : entries) {
+            entry.allowance = allowance(entry, low);
+        }
+    }
+
+    private static int allocated(List<Entry> entries, double factor) {
+        int total = 0;
+        for (Entry entry : entries) {
+            total += allowance(entry, factor);
+        }
+        return total;
+    }
+
+    private static int allowance(Entry entry, double factor) {
+        int floor = Math.min(entry.textTokens, MIN_TEXT_TOKENS);
+        return Math.max(floor, (int) (entry.textTokens * factor));
+    }
+
+    // Ranks posts so that any prefix of the list covers the whole period: the period is cut into
+    // TIME_BUCKETS stretches and the best remaining post of each is taken in turn
+    private List<Entry> rank(List<Post> posts) {
+        List<Entry> entries = new ArrayList<>(posts.size());
+        Map<String, Integer> tagCounts = new HashMap<>();
+        Map<String, Integer> moodCounts = new HashMap<>();
+        for (Post post : posts) {
+            if (post.getTags() != null) {
+                for (String tag : post.getTags()) {
+                    tagCounts.merge(tag, 1, Integer::sum);
+                }
+            }
+            if (hasText(post.getMood())) {
+                moodCounts.merge(post.getMood(), 1, Integer::sum);
+            }
+        }
+        for (Post post : posts) {
+            Entry entry = new Entry(post, postFormat);
+            entry.score = score(entry, tagCounts, moodCounts);
+            entries.add(entry);
+        }
+
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (Post post : posts) {
+            first = Math.min(first, post.getTimestamp());
+            last = Math.max(last, post.getTimestamp());
+        }
+        double span = (double) last - first + 1;
+
+        List<List<Entry>> buckets = new ArrayList<>(TIME_BUCKETS);
+        for (int b = 0; b < TIME_BUCKETS; b++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (Entry entry : entries) {
+            buckets.get((int) ((entry.post.getTimestamp() - first) / span * TIME_BUCKETS)).add(entry);
+        }
+        for (List<Entry> bucket : buckets) {
+            bucket.sort((x, y) -> Double.compare(y.score, x.score));
+        }
+
+        List<Entry> ranked = new ArrayList<>(entries.size());
+        for (int round = 0; ranked.size() < entries.size(); round++) {
+            for (List<Entry> bucket : buckets) {
+                if (round < bucket.size()) {
+                    ranked.add(bucket.get(round));
+                }
+            }
+        }
+        return ranked;
+    }
+
+    // Longer texts say more, with diminishing returns; rare tags and moods say something the other
+    // posts do not
+    private static double score(Entry entry, Map<String, Integer> tagCounts, Map<String, Integer> moodCounts) {
+        Post post = entry.post;
+        double score = Math.log1p(entry.textTokens);
+        if (hasText(post.getMood())) {
+            score += 1.0 / moodCounts.get(post.getMood());
+        }
+        if (post.getTags() != null) {
+            for (String tag : post.getTags()) {
+                score += 1.0 / tagCounts.get(tag);
+            }
+        }
+        if (hasText(post.getLocation())) {
+            score += 0.25;
+        }
+        return score;
+    }
+
+    private static String trim(String text, int textTokens, int allowance) {
+        if (allowance >= textTokens) {
+            return text;
+        }
+        int limit = (int) ((long) text.length() * allowance / textTokens);
+        int cut = text.lastIndexOf(' ', limit);
+        if (cut < limit / 2) {
+            cut = limit;
+        }
+        return text.substring(0, cut).trim() + ELLIPSIS;
+    }
+
+    // Roughly what a BPE tokenizer produces: about four characters per token for Latin text, one per
+    // character for CJK and similar scripts. Meant for budgeting, not billing.
+    public static int estimateTokens(CharSequence text) {
+        int wide = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) >= '\u2E80') {
+                wide++;
+            }
+        }
+        return wide + (int) Math.ceil((length - wide) / CHARS_PER_TOKEN);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    private static class Entry {
+        final Post post;
+        final String prefix;
+        final String text;
+        final String suffix;
+        final int fixedTokens;
+        final int textTokens;
+        double score;
+        int allowance;
+
+        Entry(Post post, int format) {
+            this.post = post;
+
+            StringBuilder before = new StringBuilder("- ");
+            if ((format & FORMAT_DATE) != 0 && post.getTimestamp() > 0) {
+                before.append('[').append(DateUtils.formatDate(post.getTimestamp())).append("] ");
+            }
+            if ((format & FORMAT_MOOD) != 0 && hasText(post.getMood())) {
+                before.append('[').append(post.getMood()).append("] ");
+            }
+
+            StringBuilder after = new StringBuilder();
+            if ((format & FORMAT_TAGS) != 0 && post.getTags() != null && !post.getTags().isEmpty()) {
+                after.append(" (Tags: ").append(String.join(", ", post.getTags())).append(')');
+            }
+            if ((format & FORMAT_LOCATION) != 0 && hasText(post.getLocation())) {
+                after.append(" (Location: ").append(post.getLocation()).append(')');
+            }
+
+            prefix = before.toString();
+            text = post.getText() != null ? post.getText().trim().replaceAll("\\s+", " ") : "";
+            suffix = after.toString();
+            // The newline ending the line is counted with the fixed part
+            fixedTokens = estimateTokens(prefix) + estimateTokens(suffix) + 1;
+            textTokens = estimateTokens(text);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.smarttimeline.ai;
+
+import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.data.model.PostVersion;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+final class SummaryFingerprint {
+
+    // Identifies a set of posts by their ids and edit times: it changes when a post in the set is
+    // added, edited or deleted, and cached summaries are only reused while it matches
+
+    // Versions must be in id order, as PostDao.getPostVersionsSync returns them
+    static String of(List<PostVersion> versions) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(12);
+        for (PostVersion version : versions) {
+            buffer.clear();
+            buffer.putInt(version.id).putLong(version.updatedAt);
+            digest.update(buffer.array());
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format(Locale.ROOT, "%02x", b));
+        }
+        return hex.toString();
+    }
+
+    // Same fingerprint as of(), for posts already loaded
+    static String ofPosts(List<Post> posts) {
+        List<PostVersion> versions = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            PostVersion version = new PostVersion();
+            version.id = post.getId();
+            version.updatedAt = post.getUpdatedAt();
+            versions.add(version);
+        }
+        versions.sort((a, b) -> Integer.compare(a.id, b.id));
+        return of(versions);
+    }
+
+    private SummaryFingerprint() {
+        // Prevent instantiation
+    }
+}
@@ -6,10 +6,15 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Converters {
 
+    // Tags are stored as a separator-joined display copy; post_tags is the queryable source.
+    // The unit separator is also a token boundary for the FTS index.
+    private static final char TAG_SEPARATOR = '\u001F';
+
     private static final Gson gson = new Gson();
 
     @TypeConverter
@@ -17,8 +22,26 @@ public class Converters {
         if (value == null) {
             return null;
         }
-        Type listType = new TypeToken<List<String>>() {}.getType();
-        return gson.fromJson(value, listType);
+
+        List<String> tags = new ArrayList<>();
+        if (value.isEmpty()) {
+            return tags;
+        }
+
+        // Rows written before the post_tags migration hold a JSON array
+        if (value.charAt(0) != TAG_SEPARATOR) {
+            Type listType = new TypeToken<List<String>>() {}.getType();
+            return gson.fromJson(value, listType);
+        }
+
+        int start = 1;
+        for (int i = 1; i <= value.length(); i++) {
+            if (i == value.length() || value.charAt(i) == TAG_SEPARATOR) {
+                tags.add(value.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return tags;
     }
 
     @TypeConverter
@@ -26,6 +49,15 @@ public class Converters {
         if (list == null) {
             return null;
         }
-        return gson.toJson(list);
+
+        // Every tag is prefixed with the separator, which also marks the value as the new format
+        StringBuilder joined = new StringBuilder();
+        for (String tag : list) {
+            joined.append(TAG_SEPARATOR);
+            if (tag != null) {
+                joined.append(tag.replace(TAG_SEPARATOR, ' '));
+            }
+        }
+        return joined.toString();
     }
-}
\ No newline at end of file
+}
@@ -4,18 +4,33 @@ import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import androidx.room.Upsert;
+import androidx.sqlite.db.SupportSQLiteQuery;
 
 import com.example.smarttimeline.data.entity.Post;
-
+import com.example.smarttimeline.data.entity.PostTag;
+import com.example.smarttimeline.data.model.DayCount;
+import com.example.smarttimeline.data.model.MoodCount;
+import com.example.smarttimeline.data.model.PostSearchResult;
+import com.example.smarttimeline.data.model.PostVersion;
+import com.example.smarttimeline.data.model.TagCount;
+
+import java.util.ArrayList;
 import java.util.List;
 
 @Dao
 public interface PostDao {
 
     @Insert
-    void insert(Post post);
+    long insert(Post post);
+
+    @Upsert
+    List<Long> upsertAll(List<Post> posts);
 
     @Update
     void update(Post post);
@@ -26,6 +41,55 @@ public interface PostDao {
     @Query("DELETE FROM posts")
     void deleteAll();
 
+    @Query("DELETE FROM posts WHERE id IN (:postIds)")
+    void deleteByIds(List<Integer> postIds);
+
+    // post_tags mirrors Post.tags so tags can be filtered and counted in SQL
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertTags(List<PostTag> tags);
+
+    @Query("DELETE FROM post_tags WHERE post_id = :postId")
+    void deleteTagsForPost(int postId);
+
+    @Transaction
+    default void insertWithTags(Post post) {
+        int postId = (int) insert(post);
+        post.setId(postId);
+        insertTags(PostTag.forPost(postId, post.getTags()));
+    }
+
+    // Posts with id 0 are inserted as new rows; posts carrying an id replace that row in place,
+    // which is how restores and incremental backups keep ids stable
+    @Transaction
+    default void upsertAllWithTags(List<Post> posts) {
+        List<Long> ids = upsertAll(posts);
+        List<PostTag> tags = new ArrayList<>();
+        for (int i = 0; i < posts.size(); i++) {
+            Post post = posts.get(i);
+            long rowId = ids.get(i);
+            int postId = rowId == -1 ? post.getId() : (int) rowId;
+            post.setId(postId);
+            deleteTagsForPost(postId);
+            tags.addAll(PostTag.forPost(postId, post.getTags()));
+        }
+        insertTags(tags);
+    }
+
+    @Transaction
+    default void updateWithTags(Post post) {
+        update(post);
+        deleteTagsForPost(post.getId());
+        insertTags(PostTag.forPost(post.getId(), post.getTags()));
+    }
+
+    @Query("SELECT posts.* FROM posts JOIN post_tags ON posts.id = post_tags.post_id " +
+            "WHERE post_tags.tag = :tag ORDER BY posts.timestamp DESC")
+    LiveData<List<Post>> getPostsByTag(String tag);
+
+    @Query("SELECT DISTINCT tag FROM post_tags ORDER BY tag")
+    LiveData<List<String>> getAllTags();
+
     @Query("SELECT * FROM posts ORDER BY timestamp DESC")
     LiveData<List<Post>> getAllPosts();
 
@@ -50,9 +114,131 @@ public interface PostDao {
     @Query("SELECT * FROM posts WHERE timestamp BETWEEN :startDate AND :endDate AND mood = :mood ORDER BY timestamp DESC")
     LiveData<List<Post>> getPostsByDateRangeAndMood(long startDate, long endDate, String mood);
 
+    // Analytics aggregates, maintained by triggers in daily_stats, mood_stats and tag_stats so a read
+    // costs one row per bucket however many posts there are
+
+    @Query("SELECT mood, count FROM mood_stats")
+    LiveData<List<MoodCount>> getMoodCounts();
+
+    @Query("SELECT day, count FROM daily_stats")
+    LiveData<List<DayCount>> getDailyPostCounts();
+
+    @Query("SELECT tag, count FROM tag_stats")
+    LiveData<List<TagCount>> getTagCounts();
+
+    // Recomputes the aggregates from posts and post_tags. Repairs drift the triggers cannot see,
+    // such as days bucketed under a previous time zone.
+    @Transaction
+    default void rebuildStats() {
+        clearDailyStats();
+        rebuildDailyStats();
+        clearMoodStats();
+        rebuildMoodStats();
+        clearTagStats();
+        rebuildTagStats();
+    }
+
+    @Query("DELETE FROM daily_stats")
+    void clearDailyStats();
+
+    // Same day as the stats triggers count each post under
+    @Query("INSERT INTO daily_stats (day, count) " +
+            "SELECT COALESCE(localDay, strftime('%Y-%m-%d', timestamp / 1000, 'unixepoch', 'localtime')), COUNT(*) " +
+            "FROM posts GROUP BY 1")
+    void rebuildDailyStats();
+
+    @Query("DELETE FROM mood_stats")
+    void clearMoodStats();
+
+    @Query("INSERT INTO mood_stats (mood, count) " +
+            "SELECT mood, COUNT(*) FROM posts WHERE mood IS NOT NULL AND mood != '' GROUP BY mood")
+    void rebuildMoodStats();
+
+    @Query("DELETE FROM tag_stats")
+    void clearTagStats();
+
+    @Query("INSERT INTO tag_stats (tag, count) SELECT tag, COUNT(*) FROM post_tags GROUP BY tag")
+    void rebuildTagStats();
+
+    // Any combination of PostFilter criteria in one statement; build the query with PostFilterQuery.
+    // post_tags is observed too, since tag criteria read it.
+
+    @RawQuery(observedEntities = {Post.class, PostTag.class})
+    LiveData<List<PostSearchResult>> filterPosts(SupportSQLiteQuery query);
+
+    @RawQuery
+    List<PostSearchResult> filterPostsSync(SupportSQLiteQuery query);
+
+    // Keyset paging: (timestamp, id) is the page boundary so deep pages cost the same as the first one
+
+    @Query("SELECT * FROM posts ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<Post> getNewestPostsSync(int limit);
+
+    @Query("SELECT * FROM posts WHERE timestamp <= :timestamp AND (timestamp < :timestamp OR id < :id) " +
+            "ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<Post> getPostsOlderThanSync(long timestamp, int id, int limit);
+
+    @Query("SELECT * FROM posts WHERE timestamp <= :timestamp AND (timestamp < :timestamp OR id <= :id) " +
+            "ORDER BY timestamp DESC, id DESC LIMIT :limit")
+    List<Post> getPostsFromKeySync(long timestamp, int id, int limit);
+
+    @Query("SELECT * FROM posts WHERE timestamp >= :timestamp AND (timestamp > :timestamp OR id > :id) " +
+            "ORDER BY timestamp ASC, id ASC LIMIT :limit")
+    List<Post> getPostsNewerThanSync(long timestamp, int id, int limit);
+
+    // Batched reads for export, in id order so each batch continues after the previous one
+
+    @Query("SELECT * FROM posts WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<Post> getPostsAfterIdSync(int afterId, int limit);
+
+    @Query("SELECT COUNT(*) FROM posts")
+    int getPostCountSync();
+
+    // Incremental backups: rows changed after :since, and deletions of rows that are still gone
+
+    @Query("SELECT * FROM posts WHERE updatedAt > :since AND id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<Post> getPostsChangedSinceSync(long since, int afterId, int limit);
+
+    @Query("SELECT COUNT(*) FROM posts WHERE updatedAt > :since")
+    int getChangedPostCountSync(long since);
+
+    @Query("SELECT post_id FROM post_tombstones WHERE deleted_at > :since " +
+            "AND post_id NOT IN (SELECT id FROM posts) ORDER BY post_id")
+    List<Integer> getDeletedPostIdsSince(long since);
+
+    @Query("DELETE FROM post_tombstones WHERE deleted_at <= :before")
+    void pruneTombstones(long before);
+
+    // Thumbnail files are shared by posts with the same image, so they are only removed once unused
+
+    @Query("SELECT COUNT(*) FROM posts WHERE thumbnailPath = :thumbnailPath")
+    int countPostsWithThumbnailSync(String thumbnailPath);
+
+    @Query("SELECT DISTINCT thumbnailPath FROM posts WHERE thumbnailPath IS NOT NULL")
+    List<String> getThumbnailPathsSync();
+
+    // Thumbnails are not part of backups: an import keeps the ones already on this device and
+    // generates the rest afterwards, in id order like the export batches
+
+    @Query("SELECT * FROM posts WHERE id IN (:postIds)")
+    List<Post> getPostsByIdsSync(List<Integer> postIds);
+
+    @Query("SELECT * FROM posts WHERE imageUri IS NOT NULL AND imageUri != '' AND thumbnailPath IS NULL " +
+            "AND id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<Post> getPostsMissingThumbnailSync(int afterId, int limit);
+
+    // Leaves updatedAt alone: a thumbnail is not an edit and must not land in the next incremental backup
+    @Query("UPDATE posts SET thumbnailPath = :thumbnailPath, placeholderColor = :placeholderColor " +
+            "WHERE id = :postId AND imageUri = :imageUri")
+    void setThumbnail(int postId, String imageUri, String thumbnailPath, int placeholderColor);
+
     // Add this method to your Dao for synchronous fetching
 
     @Query("SELECT * FROM posts WHERE timestamp BETWEEN :startDate AND :endDate ORDER BY timestamp DESC")
     List<Post> getPostsByDateRangeSync(long startDate, long endDate);
 
+    // Ids and edit times of the posts in a range, in id order, for fingerprinting cached summaries
+    @Query("SELECT id, updatedAt FROM posts WHERE timestamp BETWEEN :startDate AND :endDate ORDER BY id")
+    List<PostVersion> getPostVersionsSync(long startDate, long endDate);
+
 }
\ No newline at end of file
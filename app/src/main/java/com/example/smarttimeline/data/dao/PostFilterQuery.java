@@ -0,0 +1,91 @@
+package com.example.smarttimeline.data.dao;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import com.example.smarttimeline.data.model.PostFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public final class PostFilterQuery {
+
+    // Translates a PostFilter into one parameterized SELECT for PostDao.filterPosts. Rows come back
+    // as PostSearchResult: match_info is set when the filter has a full-text query, NULL otherwise.
+    // Each criterion maps onto an indexed column where one exists (timestamp, mood + timestamp,
+    // post_tags' primary key, the FTS index), so SQLite rather than the app does the narrowing.
+
+    private PostFilterQuery() {
+    }
+
+    // matchQuery is the FTS form of the filter's text (see FtsUtils.buildMatchQuery), or null to
+    // ignore the text
+    public static SupportSQLiteQuery build(PostFilter filter, String matchQuery) {
+        return build(filter, matchQuery, null);
+    }
+
+    // Restricted to the given ids instead of a full-text match, e.g. for substring search hits
+    public static SupportSQLiteQuery buildForIds(PostFilter filter, Collection<Integer> postIds) {
+        return build(filter, null, postIds);
+    }
+
+    private static SupportSQLiteQuery build(PostFilter filter, String matchQuery, Collection<Integer> postIds) {
+        StringBuilder sql = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+
+        if (matchQuery != null) {
+            sql.append("SELECT posts.*, matchinfo(posts_fts, 'pcx') AS match_info FROM posts ")
+                    .append("JOIN posts_fts ON posts.id = posts_fts.rowid WHERE posts_fts MATCH ?");
+            args.add(matchQuery);
+        } else {
+            sql.append("SELECT posts.*, NULL AS match_info FROM posts WHERE 1");
+        }
+
+        if (postIds != null) {
+            sql.append(" AND posts.id IN (");
+            appendPlaceholders(sql, args, postIds);
+            sql.append(')');
+        }
+        if (filter.getStartDate() != null) {
+            sql.append(" AND posts.timestamp >= ?");
+            args.add(filter.getStartDate());
+        }
+        if (filter.getEndDate() != null) {
+            sql.append(" AND posts.timestamp <= ?");
+            args.add(filter.getEndDate());
+        }
+        if (!filter.getMoods().isEmpty()) {
+            sql.append(" AND posts.mood IN (");
+            appendPlaceholders(sql, args, filter.getMoods());
+            sql.append(')');
+        }
+        if (!filter.getTags().isEmpty()) {
+            sql.append(" AND posts.id IN (SELECT post_id FROM post_tags WHERE tag IN (");
+            appendPlaceholders(sql, args, filter.getTags());
+            sql.append("))");
+        }
+        if (filter.getHasImage() != null) {
+            sql.append(filter.getHasImage()
+                    ? " AND posts.imageUri IS NOT NULL AND posts.imageUri != ''"
+                    : " AND (posts.imageUri IS NULL OR posts.imageUri = '')");
+        }
+        if (filter.getHasLocation() != null) {
+            sql.append(filter.getHasLocation()
+                    ? " AND posts.location IS NOT NULL AND posts.location != ''"
+                    : " AND (posts.location IS NULL OR posts.location = '')");
+        }
+
+        sql.append(" ORDER BY posts.timestamp DESC, posts.id DESC");
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    private static void appendPlaceholders(StringBuilder sql, List<Object> args, Collection<?> values) {
+        boolean first = true;
+        for (Object value : values) {
+            sql.append(first ? "?" : ", ?");
+            args.add(value);
+            first = false;
+        }
+    }
+}
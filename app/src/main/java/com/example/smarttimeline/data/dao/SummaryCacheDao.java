@@ -0,0 +1,31 @@
+package com.example.smarttimeline.data.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.smarttimeline.data.entity.CachedSummary;
+
+@Dao
+public interface SummaryCacheDao {
+
+    // Null when nothing was generated for this key, or the posts changed since
+    @Query("SELECT * FROM summary_cache WHERE period = :period AND range_start = :rangeStart " +
+            "AND range_end = :rangeEnd AND prompt_version = :promptVersion AND fingerprint = :fingerprint")
+    CachedSummary getFreshSync(String period, long rangeStart, long rangeEnd, int promptVersion, String fingerprint);
+
+    // Replaces the stale summary for the same key
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void put(CachedSummary summary);
+
+    @Query("UPDATE summary_cache SET last_used_at = :usedAt WHERE period = :period " +
+            "AND range_start = :rangeStart AND range_end = :rangeEnd AND prompt_version = :promptVersion")
+    void markUsed(String period, long rangeStart, long rangeEnd, int promptVersion, long usedAt);
+
+    @Query("DELETE FROM summary_cache WHERE last_used_at < :before")
+    void deleteLastUsedBefore(long before);
+
+    @Query("DELETE FROM summary_cache")
+    void deleteAll();
+}
@@ -2,27 +2,55 @@ package com.example.smarttimeline.data.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.TypeConverters;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.example.smarttimeline.data.Converters;
 import com.example.smarttimeline.data.dao.PostDao;
+import com.example.smarttimeline.data.dao.SummaryCacheDao;
+import com.example.smarttimeline.data.entity.CachedSummary;
+import com.example.smarttimeline.data.entity.DailyStat;
+import com.example.smarttimeline.data.entity.MoodStat;
 import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.data.entity.PostFts;
+import com.example.smarttimeline.data.entity.PostTag;
+import com.example.smarttimeline.data.entity.PostTombstone;
+import com.example.smarttimeline.data.entity.TagStat;
+import com.example.smarttimeline.util.AppExecutors;
+import com.example.smarttimeline.util.Constants;
 
-@Database(entities = {Post.class}, version = 1, exportSchema = false)
+@Database(entities = {Post.class, PostFts.class, PostTag.class, PostTombstone.class,
+        DailyStat.class, MoodStat.class, TagStat.class, CachedSummary.class},
+        version = Constants.DATABASE_VERSION,
+        exportSchema = true)
+@TypeConverters(Converters.class)
 public abstract class AppDatabase extends RoomDatabase {
 
     private static AppDatabase instance;
 
     public abstract PostDao postDao();
 
+    public abstract SummaryCacheDao summaryCacheDao();
+
     public static synchronized AppDatabase getInstance(Context context) {
         if (instance == null) {
             instance = Room.databaseBuilder(
                             context.getApplicationContext(),
                             AppDatabase.class,
-                            "smarttimeline_database")
-                    .fallbackToDestructiveMigration()
+                            Constants.DATABASE_NAME)
+                    .addMigrations(Migrations.ALL)
+                    .setQueryExecutor(AppExecutors.getInstance().db())
+                    .addCallback(new Callback() {
+                        @Override
+                        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                            Migrations.createTombstoneTrigger(db);
+                            Migrations.createStatsTriggers(db);
+                        }
+                    })
                     .build();
         }
         return instance;
@@ -0,0 +1,235 @@
+package com.example.smarttimeline.data.database;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.smarttimeline.data.Converters;
+import com.example.smarttimeline.data.entity.PostTag;
+
+import java.util.List;
+
+public class Migrations {
+
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // External-content FTS4 index over posts, kept in sync by the same triggers Room generates
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `posts_fts` USING FTS4("
+                    + "`text` TEXT, `location` TEXT, `mood` TEXT, `tags` TEXT, content=`posts`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_posts_fts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `posts` BEGIN DELETE FROM `posts_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_posts_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `posts` BEGIN DELETE FROM `posts_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_posts_fts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `posts` BEGIN INSERT INTO `posts_fts`(`docid`, `text`, `location`, `mood`, `tags`) "
+                    + "VALUES (NEW.`rowid`, NEW.`text`, NEW.`location`, NEW.`mood`, NEW.`tags`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_posts_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `posts` BEGIN INSERT INTO `posts_fts`(`docid`, `text`, `location`, `mood`, `tags`) "
+                    + "VALUES (NEW.`rowid`, NEW.`text`, NEW.`location`, NEW.`mood`, NEW.`tags`); END");
+            db.execSQL("INSERT INTO `posts_fts`(`posts_fts`) VALUES('rebuild')");
+        }
+    };
+
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `post_tags` (`post_id` INTEGER NOT NULL, `tag` TEXT NOT NULL, "
+                    + "PRIMARY KEY(`post_id`, `tag`), FOREIGN KEY(`post_id`) REFERENCES `posts`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_post_tags_tag` ON `post_tags` (`tag`)");
+
+            // Move every JSON tags value into post_tags and rewrite it in the separator format
+            try (Cursor cursor = db.query("SELECT id, tags FROM posts WHERE tags IS NOT NULL")) {
+                while (cursor.moveToNext()) {
+                    int postId = cursor.getInt(0);
+                    List<String> tags = Converters.fromString(cursor.getString(1));
+
+                    for (PostTag postTag : PostTag.forPost(postId, tags)) {
+                        db.execSQL("INSERT OR IGNORE INTO `post_tags` (`post_id`, `tag`) VALUES (?, ?)",
+                                new Object[]{postTag.getPostId(), postTag.getTag()});
+                    }
+                    db.execSQL("UPDATE `posts` SET `tags` = ? WHERE `id` = ?",
+                            new Object[]{Converters.fromList(tags), postId});
+                }
+            }
+        }
+    };
+
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_posts_timestamp` ON `posts` (`timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_posts_mood_timestamp` ON `posts` (`mood`, `timestamp`)");
+        }
+    };
+
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `posts` ADD COLUMN `updatedAt` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE `posts` SET `updatedAt` = `timestamp`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_posts_updatedAt` ON `posts` (`updatedAt`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `post_tombstones` (`post_id` INTEGER NOT NULL, "
+                    + "`deleted_at` INTEGER NOT NULL, PRIMARY KEY(`post_id`))");
+            createTombstoneTrigger(db);
+        }
+    };
+
+    // Existing posts are not backfilled: their images are read on demand through the loader's cache
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `posts` ADD COLUMN `thumbnailPath` TEXT");
+            db.execSQL("ALTER TABLE `posts` ADD COLUMN `placeholderColor` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `daily_stats` (`day` TEXT NOT NULL, "
+                    + "`count` INTEGER NOT NULL, PRIMARY KEY(`day`))");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `mood_stats` (`mood` TEXT NOT NULL, "
+                    + "`count` INTEGER NOT NULL, PRIMARY KEY(`mood`))");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `tag_stats` (`tag` TEXT NOT NULL, "
+                    + "`count` INTEGER NOT NULL, PRIMARY KEY(`tag`))");
+            createPostStatsTriggers(db, dayOf("NEW.`timestamp`"), dayOf("OLD.`timestamp`"), "`timestamp`");
+            createTagStatsTriggers(db);
+
+            // Same aggregates as PostDao.rebuildStats, computed once for the posts already stored
+            db.execSQL("INSERT INTO `daily_stats` (`day`, `count`) SELECT " + dayOf("`timestamp`")
+                    + ", COUNT(*) FROM `posts` GROUP BY 1");
+            db.execSQL("INSERT INTO `mood_stats` (`mood`, `count`) SELECT `mood`, COUNT(*) FROM `posts` "
+                    + "WHERE `mood` IS NOT NULL AND `mood` != '' GROUP BY `mood`");
+            db.execSQL("INSERT INTO `tag_stats` (`tag`, `count`) SELECT `tag`, COUNT(*) FROM `post_tags` "
+                    + "GROUP BY `tag`");
+        }
+    };
+
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `summary_cache` (`period` TEXT NOT NULL, "
+                    + "`range_start` INTEGER NOT NULL, `range_end` INTEGER NOT NULL, "
+                    + "`prompt_version` INTEGER NOT NULL, `fingerprint` TEXT NOT NULL, `summary_text` TEXT, "
+                    + "`post_count` INTEGER NOT NULL, `dominant_mood` TEXT, `key_themes` TEXT, "
+                    + "`generated_at` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`period`, `range_start`, `range_end`, `prompt_version`))");
+        }
+    };
+
+    // Daily stats were bucketed by converting the timestamp to a local day whenever a trigger fired, so
+    // after a time zone change a delete could decrement a different day than its insert counted.
+    // Posts now keep the day they were counted under, filled in here in the current time zone.
+    public static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `posts` ADD COLUMN `localDay` TEXT");
+            db.execSQL("DROP TRIGGER IF EXISTS `posts_stats_insert`");
+            db.execSQL("DROP TRIGGER IF EXISTS `posts_stats_delete`");
+            db.execSQL("DROP TRIGGER IF EXISTS `posts_stats_update`");
+            db.execSQL("UPDATE `posts` SET `localDay` = " + dayOf("`timestamp`"));
+            createStatsTriggers(db);
+
+            db.execSQL("DELETE FROM `daily_stats`");
+            db.execSQL("INSERT INTO `daily_stats` (`day`, `count`) SELECT `localDay`, COUNT(*) FROM `posts` "
+                    + "GROUP BY `localDay`");
+        }
+    };
+
+    // The cache was pruned on generated_at, which a cache hit never refreshed
+    public static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `summary_cache` ADD COLUMN `last_used_at` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE `summary_cache` SET `last_used_at` = `generated_at`");
+        }
+    };
+
+    public static final Migration[] ALL = {
+            MIGRATION_1_2,
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            MIGRATION_7_8,
+            MIGRATION_8_9,
+            MIGRATION_9_10
+    };
+
+    // Room cannot declare triggers, so this runs from both MIGRATION_4_5 and the database's onCreate
+    // callback. deleted_at is in milliseconds to compare directly with the last backup time.
+    static void createTombstoneTrigger(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `posts_tombstone` AFTER DELETE ON `posts` BEGIN "
+                + "INSERT OR REPLACE INTO `post_tombstones` (`post_id`, `deleted_at`) "
+                + "VALUES (OLD.`id`, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)); END");
+    }
+
+    // Keeps daily_stats, mood_stats and tag_stats in step with every write to posts and post_tags,
+    // including imports and cascaded tag deletes, so analytics read one row per bucket. Like the
+    // tombstone trigger this runs from both MIGRATION_8_9 and onCreate. SQLite before 3.24 (API 30)
+    // has no upsert, so a bucket is created with INSERT OR IGNORE and then incremented, and dropped
+    // once its count reaches zero. A post is counted under its stored localDay; a row written without
+    // one falls back to the day of its timestamp.
+    static void createStatsTriggers(SupportSQLiteDatabase db) {
+        createPostStatsTriggers(db, storedDayOf("NEW"), storedDayOf("OLD"), "`localDay`");
+        createTagStatsTriggers(db);
+    }
+
+    private static void createPostStatsTriggers(SupportSQLiteDatabase db, String newDay, String oldDay,
+                                                String dayColumn) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `posts_stats_insert` AFTER INSERT ON `posts` BEGIN "
+                + increment("daily_stats", "day", newDay)
+                + increment("mood_stats", "mood", "NEW.`mood`")
+                + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `posts_stats_delete` AFTER DELETE ON `posts` BEGIN "
+                + decrement("daily_stats", "day", oldDay)
+                + decrement("mood_stats", "mood", "OLD.`mood`")
+                + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `posts_stats_update` AFTER UPDATE OF " + dayColumn + ", `mood` "
+                + "ON `posts` WHEN " + oldDay + " IS NOT " + newDay + " OR OLD.`mood` IS NOT NEW.`mood` BEGIN "
+                + decrement("daily_stats", "day", oldDay)
+                + decrement("mood_stats", "mood", "OLD.`mood`")
+                + increment("daily_stats", "day", newDay)
+                + increment("mood_stats", "mood", "NEW.`mood`")
+                + "END");
+    }
+
+    private static void createTagStatsTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `post_tags_stats_insert` AFTER INSERT ON `post_tags` BEGIN "
+                + increment("tag_stats", "tag", "NEW.`tag`")
+                + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `post_tags_stats_delete` AFTER DELETE ON `post_tags` BEGIN "
+                + decrement("tag_stats", "tag", "OLD.`tag`")
+                + "END");
+    }
+
+    // Must match the day expression in PostDao.rebuildDailyStats
+    private static String storedDayOf(String row) {
+        return "COALESCE(" + row + ".`localDay`, " + dayOf(row + ".`timestamp`") + ")";
+    }
+
+    private static String dayOf(String timestamp) {
+        return "strftime('%Y-%m-%d', " + timestamp + " / 1000, 'unixepoch', 'localtime')";
+    }
+
+    // Empty moods are not a bucket, matching what the analytics screens have always shown
+    private static String increment(String table, String column, String value) {
+        return "INSERT OR IGNORE INTO `" + table + "` (`" + column + "`, `count`) SELECT " + value + ", 0 "
+                + "WHERE " + value + " IS NOT NULL AND " + value + " != ''; "
+                + "UPDATE `" + table + "` SET `count` = `count` + 1 WHERE `" + column + "` = " + value + "; ";
+    }
+
+    private static String decrement(String table, String column, String value) {
+        return "UPDATE `" + table + "` SET `count` = `count` - 1 WHERE `" + column + "` = " + value + "; "
+                + "DELETE FROM `" + table + "` WHERE `" + column + "` = " + value + " AND `count` <= 0; ";
+    }
+
+    private Migrations() {
+        // Prevent instantiation
+    }
+}
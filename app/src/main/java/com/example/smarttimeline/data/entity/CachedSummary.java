@@ -0,0 +1,147 @@
+package com.example.smarttimeline.data.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+// A generated AI summary kept on disk. It is reused while the posts in its range still have the
+// fingerprint recorded here and the prompt that produced it is unchanged.
+@Entity(tableName = "summary_cache",
+        primaryKeys = {"period", "range_start", "range_end", "prompt_version"})
+public class CachedSummary {
+
+    @NonNull
+    private String period;
+
+    @ColumnInfo(name = "range_start")
+    private long rangeStart;
+
+    @ColumnInfo(name = "range_end")
+    private long rangeEnd;
+
+    @ColumnInfo(name = "prompt_version")
+    private int promptVersion;
+
+    // Hash of the ids and update times of the posts the summary was made from
+    @NonNull
+    private String fingerprint;
+
+    @ColumnInfo(name = "summary_text")
+    private String summaryText;
+
+    @ColumnInfo(name = "post_count")
+    private int postCount;
+
+    @ColumnInfo(name = "dominant_mood")
+    private String dominantMood;
+
+    @ColumnInfo(name = "key_themes")
+    private String keyThemes;
+
+    @ColumnInfo(name = "generated_at")
+    private long generatedAt;
+
+    // Last time the summary was stored or served; the cache is pruned on this, not on generatedAt,
+    // so a summary still being reused is kept however old it is
+    @ColumnInfo(name = "last_used_at", defaultValue = "0")
+    private long lastUsedAt;
+
+    public CachedSummary(@NonNull String period, long rangeStart, long rangeEnd, int promptVersion,
+                         @NonNull String fingerprint) {
+        this.period = period;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.promptVersion = promptVersion;
+        this.fingerprint = fingerprint;
+    }
+
+    @NonNull
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(@NonNull String period) {
+        this.period = period;
+    }
+
+    public long getRangeStart() {
+        return rangeStart;
+    }
+
+    public void setRangeStart(long rangeStart) {
+        this.rangeStart = rangeStart;
+    }
+
+    public long getRangeEnd() {
+        return rangeEnd;
+    }
+
+    public void setRangeEnd(long rangeEnd) {
+        this.rangeEnd = rangeEnd;
+    }
+
+    public int getPromptVersion() {
+        return promptVersion;
+    }
+
+    public void setPromptVersion(int promptVersion) {
+        this.promptVersion = promptVersion;
+    }
+
+    @NonNull
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(@NonNull String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getSummaryText() {
+        return summaryText;
+    }
+
+    public void setSummaryText(String summaryText) {
+        this.summaryText = summaryText;
+    }
+
+    public int getPostCount() {
+        return postCount;
+    }
+
+    public void setPostCount(int postCount) {
+        this.postCount = postCount;
+    }
+
+    public String getDominantMood() {
+        return dominantMood;
+    }
+
+    public void setDominantMood(String dominantMood) {
+        this.dominantMood = dominantMood;
+    }
+
+    public String getKeyThemes() {
+        return keyThemes;
+    }
+
+    public void setKeyThemes(String keyThemes) {
+        this.keyThemes = keyThemes;
+    }
+
+    public long getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public void setGeneratedAt(long generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+
+    public long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public void setLastUsedAt(long lastUsedAt) {
+        this.lastUsedAt = lastUsedAt;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.smarttimeline.data.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// Posts per local calendar day, kept current by the posts_stats triggers
+@Entity(tableName = "daily_stats")
+public class DailyStat {
+
+    // The posts' localDay: yyyy-MM-dd in the time zone each post was saved in
+    @PrimaryKey
+    @NonNull
+    private String day;
+
+    private int count;
+
+    public DailyStat(@NonNull String day, int count) {
+        this.day = day;
+        this.count = count;
+    }
+
+    @NonNull
+    public String getDay() {
+        return day;
+    }
+
+    public void setDay(@NonNull String day) {
+        this.day = day;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
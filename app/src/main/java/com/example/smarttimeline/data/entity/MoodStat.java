@@ -0,0 +1,38 @@
+package com.example.smarttimeline.data.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// Posts per mood, kept current by the posts_stats triggers; posts without a mood are not counted
+@Entity(tableName = "mood_stats")
+public class MoodStat {
+
+    @PrimaryKey
+    @NonNull
+    private String mood;
+
+    private int count;
+
+    public MoodStat(@NonNull String mood, int count) {
+        this.mood = mood;
+        this.count = count;
+    }
+
+    @NonNull
+    public String getMood() {
+        return mood;
+    }
+
+    public void setMood(@NonNull String mood) {
+        this.mood = mood;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
@@ -1,14 +1,18 @@
 package com.example.smarttimeline.data.entity;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
 import com.example.smarttimeline.data.Converters;
+import com.example.smarttimeline.util.DateUtils;
 
 import java.util.List;
 
-@Entity(tableName = "posts")
+@Entity(tableName = "posts",
+        indices = {@Index("timestamp"), @Index({"mood", "timestamp"}), @Index("updatedAt")})
 @TypeConverters(Converters.class)
 public class Post {
 
@@ -22,8 +26,25 @@ public class Post {
     private String mood;
     private List<String> tags;
 
+    // Last time the post was created or edited on this device; incremental backups select on it
+    @ColumnInfo(defaultValue = "0")
+    private long updatedAt;
+
+    // Downscaled copy of the image in app storage, written when the post is saved
+    private String thumbnailPath;
+
+    // Average color of the image, drawn until the thumbnail has decoded; 0 when there is none
+    @ColumnInfo(defaultValue = "0")
+    private int placeholderColor;
+
+    // Local calendar day of timestamp (yyyy-MM-dd) in the time zone the post was saved in. The stats
+    // triggers count the post under this day and take it back from the same day, so a later time zone
+    // change cannot unbalance daily_stats.
+    private String localDay;
+
     public Post() {
         this.timestamp = System.currentTimeMillis();
+        this.updatedAt = timestamp;
     }
 
     public int getId() {
@@ -63,6 +84,9 @@ public class Post {
     }
 
     public void setTimestamp(long timestamp) {
+        if (timestamp != this.timestamp) {
+            localDay = null;
+        }
         this.timestamp = timestamp;
     }
 
@@ -81,4 +105,40 @@ public class Post {
     public void setTags(List<String> tags) {
         this.tags = tags;
     }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public String getThumbnailPath() {
+        return thumbnailPath;
+    }
+
+    public void setThumbnailPath(String thumbnailPath) {
+        this.thumbnailPath = thumbnailPath;
+    }
+
+    public int getPlaceholderColor() {
+        return placeholderColor;
+    }
+
+    public void setPlaceholderColor(int placeholderColor) {
+        this.placeholderColor = placeholderColor;
+    }
+
+    // Computed in the current time zone for a new post or a changed timestamp
+    public String getLocalDay() {
+        if (localDay == null) {
+            localDay = DateUtils.formatDay(timestamp);
+        }
+        return localDay;
+    }
+
+    public void setLocalDay(String localDay) {
+        this.localDay = localDay;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.example.smarttimeline.data.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Entity(tableName = "post_tags",
+        primaryKeys = {"post_id", "tag"},
+        foreignKeys = @ForeignKey(entity = Post.class,
+                parentColumns = "id",
+                childColumns = "post_id",
+                onDelete = ForeignKey.CASCADE),
+        indices = {@Index("tag")})
+public class PostTag {
+
+    @ColumnInfo(name = "post_id")
+    private int postId;
+
+    @NonNull
+    private String tag;
+
+    public PostTag(int postId, @NonNull String tag) {
+        this.postId = postId;
+        this.tag = tag;
+    }
+
+    public static List<PostTag> forPost(int postId, List<String> tags) {
+        List<PostTag> postTags = new ArrayList<>();
+        if (tags == null) {
+            return postTags;
+        }
+
+        Set<String> unique = new LinkedHashSet<>();
+        for (String tag : tags) {
+            if (tag != null && !tag.trim().isEmpty()) {
+                unique.add(tag.trim());
+            }
+        }
+
+        for (String tag : unique) {
+            postTags.add(new PostTag(postId, tag));
+        }
+        return postTags;
+    }
+
+    public int getPostId() {
+        return postId;
+    }
+
+    public void setPostId(int postId) {
+        this.postId = postId;
+    }
+
+    @NonNull
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(@NonNull String tag) {
+        this.tag = tag;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.smarttimeline.data.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// Filled by the posts_tombstone trigger so incremental backups can carry deletions
+@Entity(tableName = "post_tombstones")
+public class PostTombstone {
+
+    @PrimaryKey
+    @ColumnInfo(name = "post_id")
+    private int postId;
+
+    @ColumnInfo(name = "deleted_at")
+    private long deletedAt;
+
+    public PostTombstone(int postId, long deletedAt) {
+        this.postId = postId;
+        this.deletedAt = deletedAt;
+    }
+
+    public int getPostId() {
+        return postId;
+    }
+
+    public void setPostId(int postId) {
+        this.postId = postId;
+    }
+
+    public long getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(long deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.smarttimeline.data.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// Posts per tag, kept current by the post_tags_stats triggers
+@Entity(tableName = "tag_stats")
+public class TagStat {
+
+    @PrimaryKey
+    @NonNull
+    private String tag;
+
+    private int count;
+
+    public TagStat(@NonNull String tag, int count) {
+        this.tag = tag;
+        this.count = count;
+    }
+
+    @NonNull
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(@NonNull String tag) {
+        this.tag = tag;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.smarttimeline.data.model;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class ChatMessage {
 
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
     public enum MessageType {
         USER,
         AI,
@@ -16,7 +20,9 @@ public class ChatMessage {
 
     public ChatMessage() {
         this.timestamp = System.currentTimeMillis();
-        this.id = String.valueOf(timestamp);
+        // Messages created in the same millisecond, like a question and its typing indicator, still
+        // need distinct ids for the adapter's diff
+        this.id = timestamp + "-" + NEXT_ID.incrementAndGet();
     }
 
     public ChatMessage(String message, MessageType type) {
@@ -40,6 +46,16 @@ public class ChatMessage {
         return msg;
     }
 
+    // Same message with new text. Streamed replies are published as a fresh copy per update so
+    // the adapter's diff sees the change and rebinds only that row.
+    public ChatMessage withMessage(String message) {
+        ChatMessage copy = new ChatMessage(message, type);
+        copy.id = id;
+        copy.timestamp = timestamp;
+        copy.isTyping = false;
+        return copy;
+    }
+
     public String getId() {
         return id;
     }
@@ -0,0 +1,8 @@
+package com.example.smarttimeline.data.model;
+
+public class DayCount {
+
+    // Local calendar day formatted as yyyy-MM-dd
+    public String day;
+    public int count;
+}
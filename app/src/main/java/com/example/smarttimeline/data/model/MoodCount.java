@@ -0,0 +1,7 @@
+package com.example.smarttimeline.data.model;
+
+public class MoodCount {
+
+    public String mood;
+    public int count;
+}
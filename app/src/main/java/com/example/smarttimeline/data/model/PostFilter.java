@@ -0,0 +1,118 @@
+package com.example.smarttimeline.data.model;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+public class PostFilter {
+
+    // Every criterion is optional; a null or empty value means "don't filter on this". Criteria
+    // combine with AND; moods and tags each match any of the given values.
+
+    private Long startDate;
+    private Long endDate;
+    private Set<String> moods = Collections.emptySet();
+    private Set<String> tags = Collections.emptySet();
+    private Boolean hasImage;
+    private Boolean hasLocation;
+    private String query;
+
+    public PostFilter() {
+    }
+
+    public PostFilter(PostFilter other) {
+        this.startDate = other.startDate;
+        this.endDate = other.endDate;
+        this.moods = other.moods;
+        this.tags = other.tags;
+        this.hasImage = other.hasImage;
+        this.hasLocation = other.hasLocation;
+        this.query = other.query;
+    }
+
+    public boolean isEmpty() {
+        return startDate == null && endDate == null && moods.isEmpty() && tags.isEmpty()
+                && hasImage == null && hasLocation == null && !hasQuery();
+    }
+
+    public boolean hasQuery() {
+        return query != null && !query.isEmpty();
+    }
+
+    public Long getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(Long startDate) {
+        this.startDate = startDate;
+    }
+
+    public Long getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(Long endDate) {
+        this.endDate = endDate;
+    }
+
+    public Set<String> getMoods() {
+        return moods;
+    }
+
+    public void setMoods(Set<String> moods) {
+        this.moods = moods != null ? Collections.unmodifiableSet(new LinkedHashSet<>(moods)) : Collections.emptySet();
+    }
+
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(Set<String> tags) {
+        this.tags = tags != null ? Collections.unmodifiableSet(new LinkedHashSet<>(tags)) : Collections.emptySet();
+    }
+
+    public Boolean getHasImage() {
+        return hasImage;
+    }
+
+    public void setHasImage(Boolean hasImage) {
+        this.hasImage = hasImage;
+    }
+
+    public Boolean getHasLocation() {
+        return hasLocation;
+    }
+
+    public void setHasLocation(Boolean hasLocation) {
+        this.hasLocation = hasLocation;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    // Stored trimmed, so filters differing only in surrounding spaces are equal
+    public void setQuery(String query) {
+        this.query = query != null ? query.trim() : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PostFilter)) return false;
+        PostFilter other = (PostFilter) o;
+        return Objects.equals(startDate, other.startDate)
+                && Objects.equals(endDate, other.endDate)
+                && moods.equals(other.moods)
+                && tags.equals(other.tags)
+                && Objects.equals(hasImage, other.hasImage)
+                && Objects.equals(hasLocation, other.hasLocation)
+                && Objects.equals(query, other.query);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startDate, endDate, moods, tags, hasImage, hasLocation, query);
+    }
+}
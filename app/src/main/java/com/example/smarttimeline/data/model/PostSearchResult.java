@@ -0,0 +1,15 @@
+package com.example.smarttimeline.data.model;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+
+import com.example.smarttimeline.data.entity.Post;
+
+public class PostSearchResult {
+
+    @Embedded
+    public Post post;
+
+    @ColumnInfo(name = "match_info")
+    public byte[] matchInfo;
+}
@@ -0,0 +1,8 @@
+package com.example.smarttimeline.data.model;
+
+public class PostVersion {
+
+    // Enough to tell whether a set of posts changed without loading them
+    public int id;
+    public long updatedAt;
+}
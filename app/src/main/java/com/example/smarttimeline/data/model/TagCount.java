@@ -0,0 +1,7 @@
+package com.example.smarttimeline.data.model;
+
+public class TagCount {
+
+    public String tag;
+    public int count;
+}
@@ -0,0 +1,26 @@
+package com.example.smarttimeline.data.paging;
+
+import com.example.smarttimeline.data.entity.Post;
+
+public class PostPageKey {
+
+    private final long timestamp;
+    private final int id;
+
+    public PostPageKey(long timestamp, int id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public static PostPageKey of(Post post) {
+        return new PostPageKey(post.getTimestamp(), post.getId());
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.smarttimeline.data.paging;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+import androidx.room.InvalidationTracker;
+
+import com.example.smarttimeline.data.dao.PostDao;
+import com.example.smarttimeline.data.database.AppDatabase;
+import com.example.smarttimeline.data.entity.Post;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class PostPagingSource extends ListenableFuturePagingSource<PostPageKey, Post> {
+
+    // Pages newest-first using (timestamp, id) as the page boundary instead of LIMIT/OFFSET,
+    // so loading a deep page costs the same as loading the first one
+
+    private final PostDao postDao;
+    private final InvalidationTracker invalidationTracker;
+    private final ListeningExecutorService executor;
+    private final AtomicBoolean observerRegistered = new AtomicBoolean(false);
+
+    private final InvalidationTracker.Observer tableObserver = new InvalidationTracker.Observer("posts") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            invalidate();
+        }
+    };
+
+    public PostPagingSource(AppDatabase database) {
+        this.postDao = database.postDao();
+        this.invalidationTracker = database.getInvalidationTracker();
+        this.executor = MoreExecutors.listeningDecorator(database.getQueryExecutor());
+
+        registerInvalidatedCallback(() -> {
+            if (observerRegistered.get()) {
+                invalidationTracker.removeObserver(tableObserver);
+            }
+            return null;
+        });
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<PostPageKey, Post>> loadFuture(@NonNull LoadParams<PostPageKey> params) {
+        return executor.submit(() -> {
+            if (observerRegistered.compareAndSet(false, true)) {
+                invalidationTracker.addObserver(tableObserver);
+            }
+
+            try {
+                return load(params);
+            } catch (Exception e) {
+                return new LoadResult.Error<>(e);
+            }
+        });
+    }
+
+    private LoadResult<PostPageKey, Post> load(LoadParams<PostPageKey> params) {
+        PostPageKey key = params.getKey();
+        int loadSize = params.getLoadSize();
+
+        if (params instanceof LoadParams.Prepend) {
+            List<Post> newer = new ArrayList<>(
+                    postDao.getPostsNewerThanSync(key.getTimestamp(), key.getId(), loadSize));
+            Collections.reverse(newer);
+            PostPageKey prevKey = newer.size() < loadSize ? null : PostPageKey.of(newer.get(0));
+            return page(newer, prevKey, key);
+        }
+
+        if (params instanceof LoadParams.Append) {
+            List<Post> older = postDao.getPostsOlderThanSync(key.getTimestamp(), key.getId(), loadSize);
+            PostPageKey nextKey = older.size() < loadSize ? null : PostPageKey.of(older.get(older.size() - 1));
+            return page(older, key, nextKey);
+        }
+
+        // Refresh: from the top, or from the item the user was looking at when the data changed
+        List<Post> posts = key == null
+                ? postDao.getNewestPostsSync(loadSize)
+                : postDao.getPostsFromKeySync(key.getTimestamp(), key.getId(), loadSize);
+
+        if (posts.isEmpty()) {
+            return page(posts, null, null);
+        }
+
+        PostPageKey prevKey = key == null ? null : PostPageKey.of(posts.get(0));
+        PostPageKey nextKey = posts.size() < loadSize ? null : PostPageKey.of(posts.get(posts.size() - 1));
+        return page(posts, prevKey, nextKey);
+    }
+
+    private LoadResult<PostPageKey, Post> page(List<Post> posts, PostPageKey prevKey, PostPageKey nextKey) {
+        if (getInvalid()) {
+            return new LoadResult.Invalid<>();
+        }
+        return new LoadResult.Page<>(posts, prevKey, nextKey,
+                LoadResult.Page.COUNT_UNDEFINED, LoadResult.Page.COUNT_UNDEFINED);
+    }
+
+    @Nullable
+    @Override
+    public PostPageKey getRefreshKey(@NonNull PagingState<PostPageKey, Post> state) {
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+
+        // Start a little above the anchor so the visible rows survive the refresh
+        int start = Math.max(0, anchorPosition - state.getConfig().pageSize / 2);
+        Post anchorPost = state.closestItemToPosition(start);
+        return anchorPost != null ? PostPageKey.of(anchorPost) : null;
+    }
+}
@@ -7,20 +7,20 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.example.smarttimeline.data.entity.Post;
 import com.example.smarttimeline.data.model.AISummary;
+import com.example.smarttimeline.util.AppExecutors;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class AISummaryRepository {
 
     private final PostRepository postRepository;
-    private final ExecutorService executorService;
+    private final Executor executor;
     private final MutableLiveData<AISummary> latestSummary;
 
     public AISummaryRepository(Application application) {
-        this.postRepository = new PostRepository(application);
-        this.executorService = Executors.newSingleThreadExecutor();
+        this.postRepository = PostRepository.getInstance(application);
+        this.executor = AppExecutors.getInstance().compute();
         this.latestSummary = new MutableLiveData<>();
     }
 
@@ -29,7 +29,7 @@ public class AISummaryRepository {
     }
 
     public void generateSummary(List<Post> posts, String period) {
-        executorService.execute(() -> {
+        executor.execute(() -> {
             AISummary summary = createSummaryFromPosts(posts, period);
             latestSummary.postValue(summary);
         });
@@ -1,30 +1,36 @@
 package com.example.smarttimeline.data.repository;
 
 import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
 import android.net.Uri;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
-import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.util.AppExecutors;
+import com.example.smarttimeline.util.BackupFormat;
+import com.example.smarttimeline.util.Constants;
 import com.example.smarttimeline.util.ExportImportManager;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 public class ExportImportRepository {
 
     private final PostRepository postRepository;
     private final ExportImportManager exportImportManager;
-    private final ExecutorService executorService;
+    private final SharedPreferences sharedPreferences;
+    private final Executor executor;
     private final MutableLiveData<String> operationStatus;
     private final MutableLiveData<Boolean> operationInProgress;
 
     public ExportImportRepository(Application application) {
-        this.postRepository = new PostRepository(application);
+        this.postRepository = PostRepository.getInstance(application);
         this.exportImportManager = new ExportImportManager(application);
-        this.executorService = Executors.newSingleThreadExecutor();
+        this.sharedPreferences = application.getSharedPreferences(Constants.PREFS_NAME, Context.MODE_PRIVATE);
+        // Serial so an import never overlaps the export started before it
+        this.executor = AppExecutors.getInstance().newSerialExecutor();
         this.operationStatus = new MutableLiveData<>();
         this.operationInProgress = new MutableLiveData<>(false);
     }
@@ -37,75 +43,105 @@ public class ExportImportRepository {
         return operationInProgress;
     }
 
-    public void exportData(Uri destinationUri) {
+    // 0 until the first successful export
+    public long getLastBackupTime() {
+        return sharedPreferences.getLong(Constants.PREFS_LAST_BACKUP_TIME, 0);
+    }
+
+    public void exportData(Uri destinationUri, BackupFormat format, boolean incremental) {
         operationInProgress.postValue(true);
         operationStatus.postValue("Preparing export...");
 
-        LiveData<List<Post>> allPostsLiveData = postRepository.getAllPosts();
-
-        allPostsLiveData.observeForever(new androidx.lifecycle.Observer<List<Post>>() {
-            @Override
-            public void onChanged(List<Post> posts) {
-                allPostsLiveData.removeObserver(this);
+        executor.execute(() -> {
+            // Taken before reading so anything changed while exporting lands in the next delta
+            long backupStartedAt = System.currentTimeMillis();
+            ExportImportManager.ExportCallback callback = exportCallback(backupStartedAt);
 
-                if (posts == null || posts.isEmpty()) {
-                    operationStatus.postValue("No posts to export");
+            if (incremental) {
+                long since = getLastBackupTime();
+                if (since == 0) {
+                    operationStatus.postValue("No previous backup found. Export a full backup first.");
                     operationInProgress.postValue(false);
                     return;
                 }
 
-                executorService.execute(() -> {
-                    exportImportManager.exportToJson(destinationUri, posts,
-                            new ExportImportManager.ExportCallback() {
-                                @Override
-                                public void onSuccess(String message) {
-                                    operationStatus.postValue(message);
-                                    operationInProgress.postValue(false);
-                                }
-
-                                @Override
-                                public void onError(String error) {
-                                    operationStatus.postValue("Export failed: " + error);
-                                    operationInProgress.postValue(false);
-                                }
-                            });
-                });
+                int changedPosts = postRepository.getChangedPostCountSync(since);
+                List<Integer> deletedPostIds = postRepository.getDeletedPostIdsSince(since);
+                exportImportManager.exportDelta(destinationUri, since, changedPosts, deletedPostIds,
+                        (lastId, limit) -> postRepository.getPostsChangedSinceSync(since, lastId, limit),
+                        callback);
+                return;
+            }
+
+            int totalPosts = postRepository.getPostCountSync();
+
+            if (totalPosts == 0) {
+                operationStatus.postValue("No posts to export");
+                operationInProgress.postValue(false);
+                return;
             }
+
+            exportImportManager.exportBackup(destinationUri, format, totalPosts,
+                    postRepository::getPostsAfterIdSync, callback);
         });
     }
 
+    private ExportImportManager.ExportCallback exportCallback(long backupStartedAt) {
+        return new ExportImportManager.ExportCallback() {
+            @Override
+            public void onSuccess(String message) {
+                sharedPreferences.edit().putLong(Constants.PREFS_LAST_BACKUP_TIME, backupStartedAt).apply();
+                postRepository.pruneTombstonesSync(backupStartedAt);
+
+                operationStatus.postValue(message);
+                operationInProgress.postValue(false);
+            }
+
+            @Override
+            public void onError(String error) {
+                operationStatus.postValue("Export failed: " + error);
+                operationInProgress.postValue(false);
+            }
+
+            @Override
+            public void onProgress(int exported, int total) {
+                operationStatus.postValue("Exporting... " + exported + " of " + total + " posts");
+            }
+        };
+    }
+
     public void importData(Uri sourceUri, boolean replaceExisting) {
         operationInProgress.postValue(true);
         operationStatus.postValue("Reading import file...");
 
-        executorService.execute(() -> {
-            exportImportManager.importFromJson(sourceUri,
-                    new ExportImportManager.ImportCallback() {
-                        @Override
-                        public void onSuccess(List<Post> posts, String message) {
-                            if (replaceExisting) {
-                                postRepository.deleteAll();
-                                operationStatus.postValue("Clearing existing data...");
+        executor.execute(() -> {
+            try {
+                ExportImportManager.ImportResult result = postRepository.importInTransaction(
+                        target -> exportImportManager.importBackup(sourceUri, replaceExisting, target, (count, total) -> {
+                            if (total > 0) {
+                                operationStatus.postValue("Importing... " + count + " of " + total + " posts");
+                            } else {
+                                operationStatus.postValue("Importing... " + count + " posts");
                             }
-
-                            for (Post post : posts) {
-                                postRepository.insert(post);
-                            }
-
-                            operationStatus.postValue(message);
-                            operationInProgress.postValue(false);
-                        }
-
-                        @Override
-                        public void onError(String error) {
-                            operationStatus.postValue("Import failed: " + error);
-                            operationInProgress.postValue(false);
-                        }
-                    });
+                        }));
+                postRepository.attachImportedThumbnails();
+
+                if (result.incremental) {
+                    operationStatus.postValue("Applied " + result.importedCount + " changed posts and "
+                            + result.deletedCount + " deletions");
+                } else {
+                    operationStatus.postValue("Successfully imported " + result.importedCount + " posts");
+                }
+            } catch (RuntimeException e) {
+                String reason = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                operationStatus.postValue("Import failed: " + reason);
+            } finally {
+                operationInProgress.postValue(false);
+            }
         });
     }
 
-    public String generateExportFileName() {
-        return exportImportManager.generateExportFileName();
+    public String generateExportFileName(BackupFormat format, boolean incremental) {
+        return exportImportManager.generateExportFileName(format, incremental);
     }
-}
\ No newline at end of file
+}
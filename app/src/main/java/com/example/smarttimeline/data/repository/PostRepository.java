@@ -3,48 +3,308 @@ package com.example.smarttimeline.data.repository;
 import android.app.Application;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
 import com.example.smarttimeline.data.dao.PostDao;
+import com.example.smarttimeline.data.dao.PostFilterQuery;
 import com.example.smarttimeline.data.database.AppDatabase;
 import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.data.model.DayCount;
+import com.example.smarttimeline.data.model.MoodCount;
+import com.example.smarttimeline.data.model.PostFilter;
+import com.example.smarttimeline.data.model.PostSearchResult;
+import com.example.smarttimeline.data.model.TagCount;
+import com.example.smarttimeline.data.paging.PostPageKey;
+import com.example.smarttimeline.data.paging.PostPagingSource;
+import com.example.smarttimeline.util.AppExecutors;
+import com.example.smarttimeline.util.ExportImportManager;
+import com.example.smarttimeline.util.FtsUtils;
+import com.example.smarttimeline.util.ThumbnailGenerator;
+import com.example.smarttimeline.util.TrigramIndex;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class PostRepository {
 
+    private static final int PAGE_SIZE = 30;
+    private static final int PREFETCH_DISTANCE = 15;
+    private static final int SEARCH_INDEX_BATCH_SIZE = 500;
+    private static final int THUMBNAIL_BATCH_SIZE = 20;
+
+    private final Application application;
+    private final AppDatabase database;
     private final PostDao postDao;
     private final LiveData<List<Post>> allPosts;
-    private final ExecutorService executorService;
+    private final Executor writeExecutor;
+
+    // Substring index over text, location and tags; built on first search, then kept current by
+    // the write path. Index changes are made inside the write's transaction, so they are in place
+    // before Room's invalidation re-runs a search. searchIndexLock guards which index is current and
+    // is never held across a database call; the index locks itself, so searches run side by side.
+    private final Object searchIndexLock = new Object();
+    private final Object searchIndexBuildLock = new Object();
+    // Null until the first search builds it
+    private TrigramIndex searchIndex;
+    // Changes made while a build reads the posts, replayed onto the new index before it is used
+    private List<Consumer<TrigramIndex>> pendingIndexChanges;
+
+    private static volatile PostRepository instance;
 
-    public PostRepository(Application application) {
-        AppDatabase database = AppDatabase.getInstance(application);
+    private PostRepository(Application application) {
+        this.application = application;
+        database = AppDatabase.getInstance(application);
         postDao = database.postDao();
         allPosts = postDao.getAllPosts();
-        executorService = Executors.newSingleThreadExecutor();
+        // Writes stay in submission order so an edit can never land before the insert it follows
+        writeExecutor = AppExecutors.getInstance().newSerialExecutor();
+    }
+
+    public static PostRepository getInstance(Application application) {
+        if (instance == null) {
+            synchronized (PostRepository.class) {
+                if (instance == null) {
+                    instance = new PostRepository(application);
+                }
+            }
+        }
+        return instance;
     }
 
+    // The thumbnail is generated before the row is written, so a saved post never shows without one
+
     public void insert(Post post) {
-        executorService.execute(() -> postDao.insert(post));
+        post.setUpdatedAt(System.currentTimeMillis());
+        writeExecutor.execute(() -> {
+            ThumbnailGenerator.attach(application, post);
+            writeWithIndex(() -> {
+                postDao.insertWithTags(post);
+                indexPost(post);
+            });
+        });
     }
 
     public void update(Post post) {
-        executorService.execute(() -> postDao.update(post));
+        post.setUpdatedAt(System.currentTimeMillis());
+        writeExecutor.execute(() -> {
+            String previousThumbnail = post.getThumbnailPath();
+            ThumbnailGenerator.attach(application, post);
+            writeWithIndex(() -> {
+                postDao.updateWithTags(post);
+                indexPost(post);
+            });
+            if (previousThumbnail != null && !previousThumbnail.equals(post.getThumbnailPath())) {
+                deleteThumbnailIfUnused(previousThumbnail);
+            }
+        });
     }
 
     public void delete(Post post) {
-        executorService.execute(() -> postDao.delete(post));
+        writeExecutor.execute(() -> {
+            int postId = post.getId();
+            writeWithIndex(() -> {
+                postDao.delete(post);
+                changeSearchIndex(index -> index.remove(postId));
+            });
+            deleteThumbnailIfUnused(post.getThumbnailPath());
+        });
     }
 
     public void deleteAll() {
-        executorService.execute(() -> postDao.deleteAll());
+        writeExecutor.execute(() -> {
+            writeWithIndex(() -> {
+                postDao.deleteAll();
+                changeSearchIndex(TrigramIndex::clear);
+            });
+            database.summaryCacheDao().deleteAll();
+            ThumbnailGenerator.retainOnly(application, Collections.emptyList());
+        });
+    }
+
+    // Recomputes the analytics tables from the posts themselves; callback runs on the write executor
+    public void rebuildStats(Runnable onComplete) {
+        writeExecutor.execute(() -> {
+            postDao.rebuildStats();
+            if (onComplete != null) {
+                onComplete.run();
+            }
+        });
+    }
+
+    // Runs a write and its index change in one transaction. If the transaction fails after the
+    // index changed, the index is dropped and rebuilt by the next search.
+    private void writeWithIndex(Runnable write) {
+        try {
+            database.runInTransaction(write);
+        } catch (RuntimeException e) {
+            invalidateSearchIndex();
+            throw e;
+        }
+    }
+
+    private void indexPost(Post post) {
+        int postId = post.getId();
+        String text = post.getText();
+        String location = post.getLocation();
+        List<String> tags = post.getTags() != null ? new ArrayList<>(post.getTags()) : null;
+        changeSearchIndex(index -> index.put(postId, text, location, tags));
+    }
+
+    private void changeSearchIndex(Consumer<TrigramIndex> change) {
+        synchronized (searchIndexLock) {
+            if (searchIndex != null) {
+                change.accept(searchIndex);
+            }
+            if (pendingIndexChanges != null) {
+                pendingIndexChanges.add(change);
+            }
+        }
+    }
+
+    // Loads every post into a new index the first time it is needed. The posts are read without
+    // holding searchIndexLock, so writes and searches of other screens carry on meanwhile; changes
+    // made during the read are replayed onto the new index before it is published.
+    private TrigramIndex ensureSearchIndex() {
+        synchronized (searchIndexLock) {
+            if (searchIndex != null) {
+                return searchIndex;
+            }
+        }
+
+        synchronized (searchIndexBuildLock) {
+            List<Consumer<TrigramIndex>> pending;
+            synchronized (searchIndexLock) {
+                if (searchIndex != null) {
+                    return searchIndex;
+                }
+                pending = new ArrayList<>();
+                pendingIndexChanges = pending;
+            }
+
+            TrigramIndex built = new TrigramIndex();
+            try {
+                int lastId = 0;
+                List<Post> batch;
+                while (!(batch = postDao.getPostsAfterIdSync(lastId, SEARCH_INDEX_BATCH_SIZE)).isEmpty()) {
+                    for (Post post : batch) {
+                        built.put(post.getId(), post.getText(), post.getLocation(), post.getTags());
+                    }
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+            } catch (RuntimeException e) {
+                synchronized (searchIndexLock) {
+                    if (pendingIndexChanges == pending) {
+                        pendingIndexChanges = null;
+                    }
+                }
+                throw e;
+            }
+
+            synchronized (searchIndexLock) {
+                for (Consumer<TrigramIndex> change : pending) {
+                    change.accept(built);
+                }
+                // An import during the read invalidated it; it still serves this search
+                if (pendingIndexChanges == pending) {
+                    pendingIndexChanges = null;
+                    searchIndex = built;
+                }
+            }
+            return built;
+        }
+    }
+
+    private void invalidateSearchIndex() {
+        synchronized (searchIndexLock) {
+            searchIndex = null;
+            pendingIndexChanges = null;
+        }
+    }
+
+    private void deleteThumbnailIfUnused(String thumbnailPath) {
+        if (thumbnailPath != null && postDao.countPostsWithThumbnailSync(thumbnailPath) == 0) {
+            ThumbnailGenerator.delete(thumbnailPath);
+        }
+    }
+
+    // Thumbnails are not part of backups. After an import, image posts left without one get it,
+    // reusing the file when this device already had it, and only then are the files of posts the
+    // import replaced dropped. Queued behind pending writes, so a thumbnail generated for a post not
+    // yet written is never taken for unused; a few posts per task so saves are not held up meanwhile.
+    public void attachImportedThumbnails() {
+        attachMissingThumbnails(0);
+    }
+
+    private void attachMissingThumbnails(int afterId) {
+        writeExecutor.execute(() -> {
+            List<Post> batch = postDao.getPostsMissingThumbnailSync(afterId, THUMBNAIL_BATCH_SIZE);
+            if (batch.isEmpty()) {
+                ThumbnailGenerator.retainOnly(application, postDao.getThumbnailPathsSync());
+                return;
+            }
+            for (Post post : batch) {
+                ThumbnailGenerator.attach(application, post);
+                if (post.getThumbnailPath() != null) {
+                    postDao.setThumbnail(post.getId(), post.getImageUri(),
+                            post.getThumbnailPath(), post.getPlaceholderColor());
+                }
+            }
+            // Posts whose image can't be read stay without a thumbnail; the id cursor moves past them
+            attachMissingThumbnails(batch.get(batch.size() - 1).getId());
+        });
+    }
+
+    // An imported post replacing a row with the same image keeps that row's thumbnail
+    private void keepExistingThumbnails(List<Post> batch) {
+        List<Integer> ids = new ArrayList<>();
+        for (Post post : batch) {
+            if (post.getId() != 0 && post.getThumbnailPath() == null) {
+                ids.add(post.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Post> existing = new HashMap<>();
+        for (Post row : postDao.getPostsByIdsSync(ids)) {
+            existing.put(row.getId(), row);
+        }
+        for (Post post : batch) {
+            Post row = existing.get(post.getId());
+            if (row != null && Objects.equals(row.getImageUri(), post.getImageUri())) {
+                post.setThumbnailPath(row.getThumbnailPath());
+                post.setPlaceholderColor(row.getPlaceholderColor());
+            }
+        }
     }
 
     public LiveData<List<Post>> getAllPosts() {
         return allPosts;
     }
 
+    public LiveData<PagingData<Post>> getPagedPosts() {
+        Pager<PostPageKey, Post> pager = new Pager<>(
+                new PagingConfig(PAGE_SIZE, PREFETCH_DISTANCE, false),
+                () -> new PostPagingSource(database));
+        return PagingLiveData.getLiveData(pager);
+    }
+
     public LiveData<Post> getPostById(int postId) {
         return postDao.getPostById(postId);
     }
@@ -65,6 +325,175 @@ public class PostRepository {
         return postDao.getAllMoods();
     }
 
+    // Evaluates every criterion of the filter in one SQL statement. With a text query, FTS word
+    // matches come first by rank, followed by posts matching only inside a word; otherwise posts
+    // are newest first.
+    public LiveData<List<Post>> filterPosts(PostFilter filter) {
+        PostFilter snapshot = new PostFilter(filter);
+        String matchQuery = null;
+        if (snapshot.hasQuery()) {
+            matchQuery = FtsUtils.buildMatchQuery(snapshot.getQuery());
+            if (matchQuery.isEmpty()) {
+                return new MutableLiveData<>(Collections.emptyList());
+            }
+        }
+
+        // Ranking decodes every row's matchinfo and substring matches need another read, so both
+        // run on the database pool rather than in a main-thread Transformations.map; a result overtaken
+        // by a newer one is discarded
+        MediatorLiveData<List<Post>> filtered = new MediatorLiveData<>();
+        AtomicInteger generation = new AtomicInteger();
+        filtered.addSource(postDao.filterPosts(PostFilterQuery.build(snapshot, matchQuery)), results -> {
+            int current = generation.incrementAndGet();
+            AppExecutors.getInstance().db().execute(() -> {
+                List<Post> posts;
+                if (snapshot.hasQuery()) {
+                    posts = rankResults(results);
+                    posts.addAll(findSubstringMatches(snapshot, posts));
+                } else {
+                    posts = new ArrayList<>(results.size());
+                    for (PostSearchResult result : results) {
+                        posts.add(result.post);
+                    }
+                }
+                if (current == generation.get()) {
+                    filtered.postValue(posts);
+                }
+            });
+        });
+        return filtered;
+    }
+
+    // Posts containing the query inside a word ("caf" in "Le Café"), which the FTS prefix match
+    // misses; the other criteria still apply in SQL. Newest first, after the ranked word matches.
+    private List<Post> findSubstringMatches(PostFilter filter, List<Post> wordMatches) {
+        // An index replaced meanwhile by an import is only out of date, and the SQL filter below
+        // drops any post it names that is gone
+        BitSet ids = ensureSearchIndex().search(filter.getQuery());
+        for (Post post : wordMatches) {
+            ids.clear(post.getId());
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Post> matches = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>(SEARCH_INDEX_BATCH_SIZE);
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            chunk.add(id);
+            // Bound the number of SQL variables per query
+            if (chunk.size() == SEARCH_INDEX_BATCH_SIZE || ids.nextSetBit(id + 1) < 0) {
+                for (PostSearchResult result : postDao.filterPostsSync(PostFilterQuery.buildForIds(filter, chunk))) {
+                    matches.add(result.post);
+                }
+                chunk.clear();
+            }
+        }
+        matches.sort((a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+        return matches;
+    }
+
+    private static List<Post> rankResults(List<PostSearchResult> results) {
+        List<PostSearchResult> sorted = new ArrayList<>(results);
+        double[] scores = new double[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            scores[i] = FtsUtils.rank(sorted.get(i).matchInfo);
+        }
+
+        Integer[] order = new Integer[sorted.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byScore = Double.compare(scores[b], scores[a]);
+            if (byScore != 0) {
+                return byScore;
+            }
+            return Long.compare(sorted.get(b).post.getTimestamp(), sorted.get(a).post.getTimestamp());
+        });
+
+        List<Post> posts = new ArrayList<>(order.length);
+        for (Integer index : order) {
+            posts.add(sorted.get(index).post);
+        }
+        return posts;
+    }
+
+    public LiveData<List<MoodCount>> getMoodCounts() {
+        return postDao.getMoodCounts();
+    }
+
+    public LiveData<List<DayCount>> getDailyPostCounts() {
+        return postDao.getDailyPostCounts();
+    }
+
+    public LiveData<List<TagCount>> getTagCounts() {
+        return postDao.getTagCounts();
+    }
+
+    public LiveData<List<Post>> getPostsByTag(String tag) {
+        return postDao.getPostsByTag(tag);
+    }
+
+    public LiveData<List<String>> getAllTags() {
+        return postDao.getAllTags();
+    }
+
+    // Synchronous reads for background work such as export; never call these on the main thread
+
+    public List<Post> getPostsAfterIdSync(int afterId, int limit) {
+        return postDao.getPostsAfterIdSync(afterId, limit);
+    }
+
+    public int getPostCountSync() {
+        return postDao.getPostCountSync();
+    }
+
+    public List<Post> getPostsChangedSinceSync(long since, int afterId, int limit) {
+        return postDao.getPostsChangedSinceSync(since, afterId, limit);
+    }
+
+    public int getChangedPostCountSync(long since) {
+        return postDao.getChangedPostCountSync(since);
+    }
+
+    public List<Integer> getDeletedPostIdsSince(long since) {
+        return postDao.getDeletedPostIdsSince(since);
+    }
+
+    // Deletions up to a completed backup are captured by it and need not be tracked any longer
+    public void pruneTombstonesSync(long before) {
+        postDao.pruneTombstones(before);
+    }
+
+    // Imports run as a single transaction: a file that turns out to be malformed halfway through
+    // rolls back every batch, and in replace mode the old posts too
+    public <T> T importInTransaction(Function<ExportImportManager.ImportTarget, T> reader) {
+        ExportImportManager.ImportTarget target = new ExportImportManager.ImportTarget() {
+            @Override
+            public void clearExisting() {
+                postDao.deleteAll();
+            }
+
+            @Override
+            public void writePosts(List<Post> batch) {
+                keepExistingThumbnails(batch);
+                postDao.upsertAllWithTags(batch);
+            }
+
+            @Override
+            public void deletePosts(List<Integer> postIds) {
+                postDao.deleteByIds(postIds);
+            }
+        };
+        try {
+            return database.runInTransaction(() -> reader.apply(target));
+        } finally {
+            // Imports bypass the per-post write path; rebuild from the database on the next search
+            invalidateSearchIndex();
+        }
+    }
+
     public LiveData<Integer> getPostCount() {
         return postDao.getPostCount();
     }
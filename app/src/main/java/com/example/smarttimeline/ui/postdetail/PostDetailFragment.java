@@ -1,7 +1,6 @@
 package com.example.smarttimeline.ui.postdetail;
 
 import android.app.AlertDialog;
-import android.net.Uri;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -19,6 +18,7 @@ import com.example.smarttimeline.R;
 import com.example.smarttimeline.data.entity.Post;
 import com.example.smarttimeline.util.Constants;
 import com.example.smarttimeline.util.DateUtils;
+import com.example.smarttimeline.util.ImageLoader;
 import com.example.smarttimeline.viewmodel.PostDetailViewModel;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.chip.Chip;
@@ -130,7 +130,8 @@ public class PostDetailFragment extends Fragment {
 
         if (post.getImageUri() != null && !post.getImageUri().isEmpty()) {
             imageViewPost.setVisibility(View.VISIBLE);
-            imageViewPost.setImageURI(Uri.parse(post.getImageUri()));
+            ImageLoader.getInstance(requireContext()).load(post.getImageUri(),
+                    post.getThumbnailPath(), post.getPlaceholderColor(), imageViewPost);
         } else {
             imageViewPost.setVisibility(View.GONE);
         }
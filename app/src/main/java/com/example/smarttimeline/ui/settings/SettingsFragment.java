@@ -23,6 +23,7 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.example.smarttimeline.R;
 import com.example.smarttimeline.ai.AIRepository;
+import com.example.smarttimeline.util.BackupFormat;
 import com.example.smarttimeline.viewmodel.ExportImportViewModel;
 import com.example.smarttimeline.viewmodel.SettingsViewModel;
 
@@ -35,6 +36,7 @@ public class SettingsFragment extends Fragment {
     private Button buttonSaveApiKey;
     private Button buttonExportData;
     private Button buttonImportData;
+    private Button buttonRebuildAnalytics;
     private Button buttonClearData;
     private TextView textViewStatus;
     private ProgressBar progressBar;
@@ -62,6 +64,7 @@ public class SettingsFragment extends Fragment {
         buttonSaveApiKey = view.findViewById(R.id.buttonSaveApiKey);
         buttonExportData = view.findViewById(R.id.buttonExportData);
         buttonImportData = view.findViewById(R.id.buttonImportData);
+        buttonRebuildAnalytics = view.findViewById(R.id.buttonRebuildAnalytics);
         buttonClearData = view.findViewById(R.id.buttonClearData);
         textViewStatus = view.findViewById(R.id.textViewStatus);
         progressBar = view.findViewById(R.id.progressBar);
@@ -82,6 +85,15 @@ public class SettingsFragment extends Fragment {
             buttonExportData.setEnabled(!inProgress);
             buttonImportData.setEnabled(!inProgress);
         });
+
+        settingsViewModel.getStatsRebuilt().observe(getViewLifecycleOwner(), rebuilt -> {
+            if (rebuilt != null && rebuilt) {
+                buttonRebuildAnalytics.setEnabled(true);
+                textViewStatus.setText("Analytics rebuilt successfully");
+                textViewStatus.setTextColor(getResources().getColor(android.R.color.holo_green_dark, null));
+                settingsViewModel.resetStatsRebuiltState();
+            }
+        });
     }
 
     private void setupFilePickers() {
@@ -114,6 +126,7 @@ public class SettingsFragment extends Fragment {
         buttonSaveApiKey.setOnClickListener(v -> saveApiKey());
         buttonExportData.setOnClickListener(v -> exportData());
         buttonImportData.setOnClickListener(v -> importData());
+        buttonRebuildAnalytics.setOnClickListener(v -> rebuildAnalytics());
         buttonClearData.setOnClickListener(v -> showClearDataConfirmation());
     }
 
@@ -152,24 +165,55 @@ public class SettingsFragment extends Fragment {
     }
 
     private void exportData() {
+        // JSON, the default format, comes first
+        String[] formats = {
+                "JSON (human-readable)",
+                "Compact backup (smaller, faster to restore)",
+                "Changes since last backup"
+        };
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Export Format")
+                .setItems(formats, (dialog, which) -> {
+                    if (which == 2) {
+                        if (!viewModel.hasPreviousBackup()) {
+                            Toast.makeText(getContext(), "Export a full backup first", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        viewModel.setIncrementalExport(true);
+                    } else {
+                        viewModel.setIncrementalExport(false);
+                        viewModel.setBackupFormat(which == 0 ? BackupFormat.JSON : BackupFormat.BINARY);
+                    }
+                    launchExport();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void launchExport() {
         Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
-        intent.setType("application/json");
+        intent.setType(viewModel.getExportMimeType());
         intent.putExtra(Intent.EXTRA_TITLE, viewModel.generateExportFileName());
         exportLauncher.launch(intent);
     }
 
     private void importData() {
+        // Both formats are accepted; the importer tells them apart by content, not by name
         Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
-        intent.setType("application/json");
+        intent.setType("*/*");
+        intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{
+                BackupFormat.JSON.getMimeType(), BackupFormat.BINARY.getMimeType()});
         importLauncher.launch(intent);
     }
 
     private void showImportConfirmation(Uri uri) {
         new AlertDialog.Builder(requireContext())
                 .setTitle("Import Data")
-                .setMessage("Do you want to replace existing data or merge with current data?")
+                .setMessage("Do you want to replace existing data or merge with current data? "
+                        + "Change files from incremental backups are always applied on top of current data.")
                 .setPositiveButton("Replace", (dialog, which) -> {
                     viewModel.importData(uri, true);
                 })
@@ -211,6 +255,15 @@ public class SettingsFragment extends Fragment {
         settingsViewModel.clearAllData();
     }
 
+    private void rebuildAnalytics() {
+        buttonRebuildAnalytics.setEnabled(false);
+        textViewStatus.setVisibility(View.VISIBLE);
+        textViewStatus.setText("Rebuilding analytics...");
+        textViewStatus.setTextColor(getResources().getColor(android.R.color.holo_orange_dark, null));
+
+        settingsViewModel.rebuildAnalytics();
+    }
+
     private String maskApiKey(String apiKey) {
         if (apiKey.length() <= 8) {
             return "****";
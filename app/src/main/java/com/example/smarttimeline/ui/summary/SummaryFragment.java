@@ -17,16 +17,13 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.example.smarttimeline.R;
 import com.example.smarttimeline.data.model.AISummary;
+import com.example.smarttimeline.util.DateUtils;
 import com.example.smarttimeline.viewmodel.SummaryViewModel;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-
 public class SummaryFragment extends Fragment {
 
     private SummaryViewModel viewModel;
@@ -57,7 +54,6 @@ public class SummaryFragment extends Fragment {
     private TextView emptyStateMessage;
     private MaterialButton emptyStateButton;
 
-    private SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
     private String selectedPeriod = "Weekly";
 
     @Nullable
@@ -226,7 +222,7 @@ public class SummaryFragment extends Fragment {
         textViewSummaryText.setText(summary.getSummaryText());
         textViewPeriod.setText(summary.getPeriod() + " Summary");
         textViewPostCount.setText(String.valueOf(summary.getPostCount()));
-        textViewGeneratedTime.setText("Generated: " + dateFormat.format(new Date(summary.getGeneratedTimestamp())));
+        textViewGeneratedTime.setText("Generated: " + DateUtils.formatDateTime(summary.getGeneratedTimestamp()));
 
         if (summary.getDominantMood() != null && !summary.getDominantMood().isEmpty()) {
             layoutDominantMood.setVisibility(View.VISIBLE);
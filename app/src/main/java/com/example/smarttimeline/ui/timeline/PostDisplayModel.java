@@ -0,0 +1,223 @@
+package com.example.smarttimeline.ui.timeline;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+
+import com.example.smarttimeline.R;
+import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.util.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class PostDisplayModel {
+
+    // Everything a timeline row shows, resolved ahead of time on a background thread so that
+    // binding a row is only field assignment
+
+    private final Post post;
+    private final String text;
+    private final String formattedTimestamp;
+    private final String moodLabel;
+    private final ColorStateList moodChipColor;
+    private final int moodStripColor;
+    private final String imageUri;
+    private final String thumbnailPath;
+    private final int placeholderColor;
+    private final List<String> tagLabels;
+    private final String location;
+
+    private PostDisplayModel(Post post, String formattedTimestamp, MoodStyle moodStyle, List<String> tagLabels) {
+        this.post = post;
+        this.text = post.getText();
+        this.formattedTimestamp = formattedTimestamp;
+        this.moodLabel = moodStyle.label;
+        this.moodChipColor = moodStyle.chipColor;
+        this.moodStripColor = moodStyle.stripColor;
+        this.imageUri = isEmpty(post.getImageUri()) ? null : post.getImageUri();
+        this.thumbnailPath = post.getThumbnailPath();
+        this.placeholderColor = post.getPlaceholderColor();
+        this.tagLabels = tagLabels;
+        this.location = isEmpty(post.getLocation()) ? null : post.getLocation();
+    }
+
+    public Post getPost() {
+        return post;
+    }
+
+    public int getId() {
+        return post.getId();
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getFormattedTimestamp() {
+        return formattedTimestamp;
+    }
+
+    // Null when the post has no mood
+    public String getMoodLabel() {
+        return moodLabel;
+    }
+
+    public ColorStateList getMoodChipColor() {
+        return moodChipColor;
+    }
+
+    public int getMoodStripColor() {
+        return moodStripColor;
+    }
+
+    public String getImageUri() {
+        return imageUri;
+    }
+
+    public String getThumbnailPath() {
+        return thumbnailPath;
+    }
+
+    public int getPlaceholderColor() {
+        return placeholderColor;
+    }
+
+    public List<String> getTagLabels() {
+        return tagLabels;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public boolean hasMood() {
+        return moodLabel != null;
+    }
+
+    public boolean hasImage() {
+        return imageUri != null;
+    }
+
+    public boolean hasTags() {
+        return !tagLabels.isEmpty();
+    }
+
+    public boolean hasLocation() {
+        return location != null;
+    }
+
+    public boolean hasMetaInfo() {
+        return hasTags() || hasLocation();
+    }
+
+    // Bit flags for the parts of a row that differ between two models of the same post
+    public static final int CHANGE_TEXT = 1;
+    public static final int CHANGE_TIMESTAMP = 1 << 1;
+    public static final int CHANGE_MOOD = 1 << 2;
+    public static final int CHANGE_IMAGE = 1 << 3;
+    public static final int CHANGE_TAGS = 1 << 4;
+    public static final int CHANGE_LOCATION = 1 << 5;
+    public static final int CHANGE_ALL = CHANGE_TEXT | CHANGE_TIMESTAMP | CHANGE_MOOD | CHANGE_IMAGE
+            | CHANGE_TAGS | CHANGE_LOCATION;
+
+    // 0 when a row showing this model would look the same showing other
+    public int changesFrom(PostDisplayModel other) {
+        int changes = 0;
+        if (!Objects.equals(text, other.text)) {
+            changes |= CHANGE_TEXT;
+        }
+        if (!formattedTimestamp.equals(other.formattedTimestamp)) {
+            changes |= CHANGE_TIMESTAMP;
+        }
+        if (!Objects.equals(moodLabel, other.moodLabel) || moodStripColor != other.moodStripColor) {
+            changes |= CHANGE_MOOD;
+        }
+        if (!Objects.equals(imageUri, other.imageUri) || !Objects.equals(thumbnailPath, other.thumbnailPath)
+                || placeholderColor != other.placeholderColor) {
+            changes |= CHANGE_IMAGE;
+        }
+        if (!tagLabels.equals(other.tagLabels)) {
+            changes |= CHANGE_TAGS;
+        }
+        if (!Objects.equals(location, other.location)) {
+            changes |= CHANGE_LOCATION;
+        }
+        return changes;
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    // Safe to call from several background threads at once
+    public static class Factory {
+
+        private final Context context;
+        private final Map<String, MoodStyle> moodStyles = new ConcurrentHashMap<>();
+        private final MoodStyle noMood;
+
+        public Factory(Context context) {
+            this.context = context.getApplicationContext();
+            this.noMood = new MoodStyle(null, null, this.context.getColor(R.color.mood_neutral_accent));
+        }
+
+        public PostDisplayModel create(Post post) {
+            // Served from the day and minute caches, since most posts share their date with others
+            String formattedTimestamp = DateUtils.formatDateTime(post.getTimestamp());
+
+            String mood = post.getMood();
+            MoodStyle moodStyle = isEmpty(mood) ? noMood : moodStyles.computeIfAbsent(mood, this::resolveMood);
+
+            return new PostDisplayModel(post, formattedTimestamp, moodStyle, tagLabels(post.getTags()));
+        }
+
+        private static List<String> tagLabels(List<String> tags) {
+            if (tags == null || tags.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<String> labels = new ArrayList<>(tags.size());
+            for (String tag : tags) {
+                labels.add("#" + tag);
+            }
+            return Collections.unmodifiableList(labels);
+        }
+
+        private MoodStyle resolveMood(String mood) {
+            String emoji;
+            int chipColorRes;
+            int stripColorRes;
+            switch (mood.toLowerCase(Locale.ROOT)) {
+                case "happy": emoji = "😊"; chipColorRes = R.color.mood_happy; stripColorRes = R.color.mood_happy_accent; break;
+                case "sad": emoji = "😢"; chipColorRes = R.color.mood_sad; stripColorRes = R.color.mood_sad_accent; break;
+                case "excited": emoji = "🤩"; chipColorRes = R.color.mood_excited; stripColorRes = R.color.mood_excited_accent; break;
+                case "calm": emoji = "😌"; chipColorRes = R.color.mood_calm; stripColorRes = R.color.mood_calm_accent; break;
+                case "anxious": emoji = "😰"; chipColorRes = R.color.mood_anxious; stripColorRes = R.color.mood_anxious_accent; break;
+                case "grateful": emoji = "🙏"; chipColorRes = R.color.mood_grateful; stripColorRes = R.color.mood_grateful_accent; break;
+                case "frustrated": emoji = "😤"; chipColorRes = R.color.mood_frustrated; stripColorRes = R.color.mood_frustrated_accent; break;
+                case "motivated": emoji = "💪"; chipColorRes = R.color.mood_motivated; stripColorRes = R.color.mood_motivated_accent; break;
+                case "neutral": emoji = "😐"; chipColorRes = R.color.mood_neutral; stripColorRes = R.color.mood_neutral_accent; break;
+                default: emoji = "😊"; chipColorRes = R.color.mood_neutral; stripColorRes = R.color.mood_neutral_accent; break;
+            }
+            return new MoodStyle(emoji + " " + mood,
+                    ColorStateList.valueOf(context.getColor(chipColorRes)),
+                    context.getColor(stripColorRes));
+        }
+    }
+
+    private static final class MoodStyle {
+        final String label;
+        final ColorStateList chipColor;
+        final int stripColor;
+
+        MoodStyle(String label, ColorStateList chipColor, int stripColor) {
+            this.label = label;
+            this.chipColor = chipColor;
+            this.stripColor = stripColor;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.smarttimeline.ui.timeline;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.smarttimeline.R;
+
+import java.util.Collections;
+import java.util.List;
+
+public class TagRowView extends View {
+
+    // Draws a post's tag labels as wrapping pills without a child view per tag, so binding a row
+    // only swaps the list reference. Layout arrays grow to the largest tag count seen and are reused.
+
+    private final Paint pillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF pill = new RectF();
+
+    private final float pillHeight;
+    private final float paddingHorizontal;
+    private final float spacing;
+    private final float cornerRadius;
+    private final float baselineOffset;
+
+    private List<String> labels = Collections.emptyList();
+    private float[] lefts = new float[8];
+    private float[] tops = new float[8];
+    private float[] widths = new float[8];
+
+    public TagRowView(Context context) {
+        this(context, null);
+    }
+
+    public TagRowView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+
+        pillHeight = getResources().getDimension(R.dimen.tag_pill_height);
+        paddingHorizontal = getResources().getDimension(R.dimen.tag_pill_padding_horizontal);
+        spacing = getResources().getDimension(R.dimen.tag_pill_spacing);
+        cornerRadius = pillHeight / 2;
+
+        pillPaint.setColor(context.getColor(R.color.primary_light));
+        textPaint.setColor(context.getColor(R.color.primary_dark));
+        textPaint.setTextSize(getResources().getDimension(R.dimen.tag_text_size));
+
+        Paint.FontMetrics metrics = textPaint.getFontMetrics();
+        baselineOffset = (pillHeight - metrics.ascent - metrics.descent) / 2;
+    }
+
+    // Labels are drawn as given, e.g. "#travel"
+    public void setLabels(@Nullable List<String> labels) {
+        List<String> next = labels != null ? labels : Collections.<String>emptyList();
+        if (next.equals(this.labels)) {
+            return;
+        }
+        this.labels = next;
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        if (MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED) {
+            width = Integer.MAX_VALUE;
+        }
+
+        float contentHeight = layoutPills(width - getPaddingLeft() - getPaddingRight());
+        int height = (int) Math.ceil(contentHeight) + getPaddingTop() + getPaddingBottom();
+
+        int measuredWidth = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED
+                ? (int) Math.ceil(widestRow()) + getPaddingLeft() + getPaddingRight()
+                : width;
+        setMeasuredDimension(measuredWidth, resolveSize(height, heightMeasureSpec));
+    }
+
+    // Positions every pill relative to the content box, wrapping onto new rows; returns the height used
+    private float layoutPills(float availableWidth) {
+        int count = labels.size();
+        if (lefts.length < count) {
+            int capacity = Math.max(count, lefts.length * 2);
+            lefts = new float[capacity];
+            tops = new float[capacity];
+            widths = new float[capacity];
+        }
+
+        float x = 0;
+        float y = 0;
+        for (int i = 0; i < count; i++) {
+            float width = 2 * paddingHorizontal + textPaint.measureText(labels.get(i));
+            // A tag wider than the row is clipped rather than overflowing it
+            width = Math.min(width, Math.max(0, availableWidth));
+
+            if (x > 0 && x + width > availableWidth) {
+                x = 0;
+                y += pillHeight + spacing;
+            }
+            lefts[i] = x;
+            tops[i] = y;
+            widths[i] = width;
+            x += width + spacing;
+        }
+        return count > 0 ? y + pillHeight : 0;
+    }
+
+    private float widestRow() {
+        float widest = 0;
+        for (int i = 0; i < labels.size(); i++) {
+            widest = Math.max(widest, lefts[i] + widths[i]);
+        }
+        return widest;
+    }
+
+    // Built only when accessibility services ask, keeping it off the bind path
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        if (!labels.isEmpty()) {
+            info.setContentDescription(TextUtils.join(", ", labels));
+        }
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+
+        boolean rtl = getLayoutDirection() == LAYOUT_DIRECTION_RTL;
+        float contentWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+
+        for (int i = 0; i < labels.size(); i++) {
+            float left = rtl
+                    ? getPaddingLeft() + contentWidth - lefts[i] - widths[i]
+                    : getPaddingLeft() + lefts[i];
+            float top = getPaddingTop() + tops[i];
+            pill.set(left, top, left + widths[i], top + pillHeight);
+            canvas.drawRoundRect(pill, cornerRadius, cornerRadius, pillPaint);
+
+            int save = canvas.save();
+            canvas.clipRect(pill.left + paddingHorizontal, pill.top, pill.right - paddingHorizontal, pill.bottom);
+            canvas.drawText(labels.get(i), pill.left + paddingHorizontal, top + baselineOffset, textPaint);
+            canvas.restoreToCount(save);
+        }
+    }
+}
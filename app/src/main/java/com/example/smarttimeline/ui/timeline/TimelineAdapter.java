@@ -1,6 +1,5 @@
 package com.example.smarttimeline.ui.timeline;
 
-import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,41 +8,41 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.smarttimeline.R;
 import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.util.ImageLoader;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.chip.Chip;
-import com.google.android.material.chip.ChipGroup;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import java.util.List;
 
-public class TimelineAdapter extends ListAdapter<Post, TimelineAdapter.PostViewHolder> {
+public class TimelineAdapter extends PagingDataAdapter<PostDisplayModel, TimelineAdapter.PostViewHolder> {
 
     private OnItemClickListener listener;
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
 
     public TimelineAdapter() {
         super(DIFF_CALLBACK);
     }
 
-    private static final DiffUtil.ItemCallback<Post> DIFF_CALLBACK = new DiffUtil.ItemCallback<Post>() {
+    private static final DiffUtil.ItemCallback<PostDisplayModel> DIFF_CALLBACK = new DiffUtil.ItemCallback<PostDisplayModel>() {
         @Override
-        public boolean areItemsTheSame(@NonNull Post oldItem, @NonNull Post newItem) {
+        public boolean areItemsTheSame(@NonNull PostDisplayModel oldItem, @NonNull PostDisplayModel newItem) {
             return oldItem.getId() == newItem.getId();
         }
 
         @Override
-        public boolean areContentsTheSame(@NonNull Post oldItem, @NonNull Post newItem) {
-            return oldItem.getText().equals(newItem.getText()) &&
-                    oldItem.getTimestamp() == newItem.getTimestamp() &&
-                    ((oldItem.getMood() == null && newItem.getMood() == null) ||
-                            (oldItem.getMood() != null && oldItem.getMood().equals(newItem.getMood())));
+        public boolean areContentsTheSame(@NonNull PostDisplayModel oldItem, @NonNull PostDisplayModel newItem) {
+            return newItem.changesFrom(oldItem) == 0;
+        }
+
+        // The CHANGE_* flags that differ, so the row rebinds only those views
+        @Override
+        public Object getChangePayload(@NonNull PostDisplayModel oldItem, @NonNull PostDisplayModel newItem) {
+            return newItem.changesFrom(oldItem);
         }
     };
 
@@ -57,12 +56,45 @@ public class TimelineAdapter extends ListAdapter<Post, TimelineAdapter.PostViewH
 
     @Override
     public void onBindViewHolder(@NonNull PostViewHolder holder, int position) {
-        Post currentPost = getItem(position);
-        holder.bind(currentPost);
+        PostDisplayModel currentPost = getItem(position);
+        if (currentPost != null) {
+            holder.bind(currentPost);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PostViewHolder holder, int position, @NonNull List<Object> payloads) {
+        PostDisplayModel currentPost = getItem(position);
+        if (currentPost == null) {
+            return;
+        }
+
+        // Several diffs can be dispatched before the row is rebound; apply all of their changes
+        int changes = 0;
+        for (Object payload : payloads) {
+            if (!(payload instanceof Integer)) {
+                holder.bind(currentPost);
+                return;
+            }
+            changes |= (Integer) payload;
+        }
+
+        if (changes == 0) {
+            holder.bind(currentPost);
+        } else {
+            holder.bindChanges(currentPost, changes);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull PostViewHolder holder) {
+        super.onViewRecycled(holder);
+        ImageLoader.getInstance(holder.itemView.getContext()).clear(holder.imageViewPost);
     }
 
     public Post getPostAt(int position) {
-        return getItem(position);
+        PostDisplayModel model = getItem(position);
+        return model != null ? model.getPost() : null;
     }
 
     class PostViewHolder extends RecyclerView.ViewHolder {
@@ -73,7 +105,7 @@ public class TimelineAdapter extends ListAdapter<Post, TimelineAdapter.PostViewH
         private final ImageView imageViewPost;
         private final View moodColorStrip;
         private final MaterialCardView imageCardView;
-        private final ChipGroup chipGroupTags;
+        private final TagRowView tagRowView;
         private final LinearLayout metaInfoContainer;
         private final LinearLayout locationContainer;
 
@@ -86,118 +118,74 @@ public class TimelineAdapter extends ListAdapter<Post, TimelineAdapter.PostViewH
             imageViewPost = itemView.findViewById(R.id.imageViewPost);
             moodColorStrip = itemView.findViewById(R.id.moodColorStrip);
             imageCardView = itemView.findViewById(R.id.imageCardView);
-            chipGroupTags = itemView.findViewById(R.id.chipGroupTags);
+            tagRowView = itemView.findViewById(R.id.tagRowView);
             metaInfoContainer = itemView.findViewById(R.id.metaInfoContainer);
             locationContainer = itemView.findViewById(R.id.locationContainer);
 
             itemView.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION && listener != null) {
-                    listener.onItemClick(getItem(position));
+                    PostDisplayModel post = getItem(position);
+                    if (post != null) {
+                        listener.onItemClick(post.getPost());
+                    }
                 }
             });
         }
 
-        public void bind(Post post) {
-            // Set content
-            textViewContent.setText(post.getText());
-            textViewTimestamp.setText(dateFormat.format(new Date(post.getTimestamp())));
-
-            // Set mood color strip and chip
-            if (post.getMood() != null && !post.getMood().isEmpty()) {
-                chipMood.setVisibility(View.VISIBLE);
-                chipMood.setText(getMoodEmoji(post.getMood()) + " " + post.getMood());
+        // Everything is precomputed in PostDisplayModel; nothing here formats or looks anything up
+        public void bind(PostDisplayModel post) {
+            bindChanges(post, PostDisplayModel.CHANGE_ALL);
+        }
 
-                int moodColor = getMoodColor(post.getMood());
-                moodColorStrip.setBackgroundColor(moodColor);
-                chipMood.setChipBackgroundColorResource(getMoodColorResource(post.getMood()));
-            } else {
-                chipMood.setVisibility(View.GONE);
-                moodColorStrip.setBackgroundColor(itemView.getContext().getColor(R.color.mood_neutral_accent));
+        // Updates only the views for the given CHANGE_* flags; an unchanged image is not reloaded
+        void bindChanges(PostDisplayModel post, int changes) {
+            if ((changes & PostDisplayModel.CHANGE_TEXT) != 0) {
+                textViewContent.setText(post.getText());
             }
-
-            // Set image
-            if (post.getImageUri() != null && !post.getImageUri().isEmpty()) {
-                imageCardView.setVisibility(View.VISIBLE);
-                imageViewPost.setImageURI(Uri.parse(post.getImageUri()));
-            } else {
-                imageCardView.setVisibility(View.GONE);
+            if ((changes & PostDisplayModel.CHANGE_TIMESTAMP) != 0) {
+                textViewTimestamp.setText(post.getFormattedTimestamp());
             }
-
-            // Set tags
-            chipGroupTags.removeAllViews();
-            if (post.getTags() != null && !post.getTags().isEmpty()) {
-                chipGroupTags.setVisibility(View.VISIBLE);
-                for (String tag : post.getTags()) {
-                    Chip chip = new Chip(itemView.getContext());
-                    chip.setText("#" + tag);
-                    chip.setTextSize(11);
-                    chip.setChipBackgroundColorResource(R.color.primary_light);
-                    chip.setTextColor(itemView.getContext().getColor(R.color.primary_dark));
-                    chip.setClickable(false);
-                    chip.setChipMinHeight(24);
-                    chipGroupTags.addView(chip);
-                }
-            } else {
-                chipGroupTags.setVisibility(View.GONE);
+            if ((changes & PostDisplayModel.CHANGE_MOOD) != 0) {
+                bindMood(post);
             }
-
-            // Set location
-            if (post.getLocation() != null && !post.getLocation().isEmpty()) {
-                locationContainer.setVisibility(View.VISIBLE);
+            if ((changes & PostDisplayModel.CHANGE_IMAGE) != 0) {
+                bindImage(post);
+            }
+            if ((changes & PostDisplayModel.CHANGE_TAGS) != 0) {
+                // Drawn by a single view, so no per-tag views are created while scrolling
+                tagRowView.setVisibility(post.hasTags() ? View.VISIBLE : View.GONE);
+                tagRowView.setLabels(post.getTagLabels());
+            }
+            if ((changes & PostDisplayModel.CHANGE_LOCATION) != 0) {
+                locationContainer.setVisibility(post.hasLocation() ? View.VISIBLE : View.GONE);
                 textViewLocation.setText(post.getLocation());
-            } else {
-                locationContainer.setVisibility(View.GONE);
             }
-
-            // Show/hide meta info container
-            boolean hasMetaInfo = (post.getTags() != null && !post.getTags().isEmpty()) ||
-                    (post.getLocation() != null && !post.getLocation().isEmpty());
-            metaInfoContainer.setVisibility(hasMetaInfo ? View.VISIBLE : View.GONE);
-        }
-
-        private String getMoodEmoji(String mood) {
-            switch (mood.toLowerCase()) {
-                case "happy": return "😊";
-                case "sad": return "😢";
-                case "excited": return "🤩";
-                case "calm": return "😌";
-                case "anxious": return "😰";
-                case "grateful": return "🙏";
-                case "frustrated": return "😤";
-                case "motivated": return "💪";
-                case "neutral": return "😐";
-                default: return "😊";
+            if ((changes & (PostDisplayModel.CHANGE_TAGS | PostDisplayModel.CHANGE_LOCATION)) != 0) {
+                metaInfoContainer.setVisibility(post.hasMetaInfo() ? View.VISIBLE : View.GONE);
             }
         }
 
-        private int getMoodColor(String mood) {
-            int colorResId;
-            switch (mood.toLowerCase()) {
-                case "happy": colorResId = R.color.mood_happy_accent; break;
-                case "sad": colorResId = R.color.mood_sad_accent; break;
-                case "excited": colorResId = R.color.mood_excited_accent; break;
-                case "calm": colorResId = R.color.mood_calm_accent; break;
-                case "anxious": colorResId = R.color.mood_anxious_accent; break;
-                case "grateful": colorResId = R.color.mood_grateful_accent; break;
-                case "frustrated": colorResId = R.color.mood_frustrated_accent; break;
-                case "motivated": colorResId = R.color.mood_motivated_accent; break;
-                default: colorResId = R.color.mood_neutral_accent; break;
+        private void bindMood(PostDisplayModel post) {
+            moodColorStrip.setBackgroundColor(post.getMoodStripColor());
+            if (post.hasMood()) {
+                chipMood.setVisibility(View.VISIBLE);
+                chipMood.setText(post.getMoodLabel());
+                chipMood.setChipBackgroundColor(post.getMoodChipColor());
+            } else {
+                chipMood.setVisibility(View.GONE);
             }
-            return itemView.getContext().getColor(colorResId);
         }
 
-        private int getMoodColorResource(String mood) {
-            switch (mood.toLowerCase()) {
-                case "happy": return R.color.mood_happy;
-                case "sad": return R.color.mood_sad;
-                case "excited": return R.color.mood_excited;
-                case "calm": return R.color.mood_calm;
-                case "anxious": return R.color.mood_anxious;
-                case "grateful": return R.color.mood_grateful;
-                case "frustrated": return R.color.mood_frustrated;
-                case "motivated": return R.color.mood_motivated;
-                default: return R.color.mood_neutral;
+        // Decoded off the main thread at the size of the view
+        private void bindImage(PostDisplayModel post) {
+            if (post.hasImage()) {
+                imageCardView.setVisibility(View.VISIBLE);
+                ImageLoader.getInstance(itemView.getContext()).load(post.getImageUri(),
+                        post.getThumbnailPath(), post.getPlaceholderColor(), imageViewPost);
+            } else {
+                imageCardView.setVisibility(View.GONE);
+                ImageLoader.getInstance(itemView.getContext()).clear(imageViewPost);
             }
         }
     }
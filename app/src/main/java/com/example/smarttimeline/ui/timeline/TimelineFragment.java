@@ -14,11 +14,12 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.PagingData;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.smarttimeline.R;
-import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.data.model.PostFilter;
 import com.example.smarttimeline.ui.postdetail.PostDetailFragment;
 import com.example.smarttimeline.util.Constants;
 import com.example.smarttimeline.viewmodel.TimelineViewModel;
@@ -26,6 +27,7 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class TimelineFragment extends Fragment {
@@ -38,7 +40,8 @@ public class TimelineFragment extends Fragment {
     private SearchView searchView;
     private AutoCompleteTextView moodFilterDropdown;
 
-    private List<Post> allPosts = new ArrayList<>();
+    private PagingData<PostDisplayModel> latestPage;
+    private int totalPostCount = -1;
     private String currentSearchQuery = "";
     private String currentMoodFilter = "All Moods";
     private View emptyStateView;
@@ -107,21 +110,21 @@ public class TimelineFragment extends Fragment {
             @Override
             public boolean onQueryTextSubmit(String query) {
                 currentSearchQuery = query;
-                filterPosts();
+                filterPosts(true);
                 return true;
             }
 
             @Override
             public boolean onQueryTextChange(String newText) {
                 currentSearchQuery = newText;
-                filterPosts();
+                filterPosts(false);
                 return true;
             }
         });
 
         searchView.setOnCloseListener(() -> {
             currentSearchQuery = "";
-            filterPosts();
+            filterPosts(true);
             return false;
         });
     }
@@ -144,94 +147,80 @@ public class TimelineFragment extends Fragment {
 
         moodFilterDropdown.setOnItemClickListener((parent, view, position, id) -> {
             currentMoodFilter = moodOptions.get(position);
-            filterPosts();
+            filterPosts(true);
         });
     }
 
     private void setupViewModel() {
         viewModel = new ViewModelProvider(this).get(TimelineViewModel.class);
 
-        viewModel.getAllPosts().observe(getViewLifecycleOwner(), posts -> {
-            if (posts != null) {
-                allPosts = new ArrayList<>(posts);
-                filterPosts();
+        // Unfiltered timeline is paged so only the visible window is ever in memory
+        viewModel.getPagedPosts().observe(getViewLifecycleOwner(), pagingData -> {
+            latestPage = pagingData;
+            if (!hasActiveFilters()) {
+                adapter.submitData(getViewLifecycleOwner().getLifecycle(), pagingData);
             }
         });
-    }
-
-    private void filterPosts() {
-        List<Post> filteredPosts = new ArrayList<>();
-
-        for (Post post : allPosts) {
-            boolean matchesSearch = matchesSearchQuery(post, currentSearchQuery);
-            boolean matchesMood = matchesMoodFilter(post, currentMoodFilter);
 
-            if (matchesSearch && matchesMood) {
-                filteredPosts.add(post);
+        viewModel.getFilteredPosts().observe(getViewLifecycleOwner(), posts -> {
+            if (posts != null && hasActiveFilters()) {
+                adapter.submitData(getViewLifecycleOwner().getLifecycle(), PagingData.from(posts));
+                updateEmptyView(posts.isEmpty());
             }
-        }
+        });
 
-        adapter.submitList(filteredPosts);
-        updateEmptyView(filteredPosts);
+        viewModel.getPostCount().observe(getViewLifecycleOwner(), count -> {
+            totalPostCount = count != null ? count : 0;
+            if (!hasActiveFilters()) {
+                updateEmptyView(totalPostCount == 0);
+            }
+        });
     }
 
-    private boolean matchesSearchQuery(Post post, String query) {
-        if (query == null || query.trim().isEmpty()) {
-            return true;
-        }
-
-        String lowerQuery = query.toLowerCase().trim();
-
-        // Search in text content
-        if (post.getText() != null && post.getText().toLowerCase().contains(lowerQuery)) {
-            return true;
-        }
+    private boolean hasActiveFilters() {
+        return (currentSearchQuery != null && !currentSearchQuery.trim().isEmpty())
+                || !currentMoodFilter.equals("All Moods");
+    }
 
-        // Search in location
-        if (post.getLocation() != null && post.getLocation().toLowerCase().contains(lowerQuery)) {
-            return true;
+    // Searching and converting results happen in the view model, off the main thread; results
+    // arrive through getFilteredPosts()
+    private void filterPosts(boolean immediate) {
+        if (adapter == null || viewModel == null) {
+            return;
         }
 
-        // Search in tags
-        if (post.getTags() != null) {
-            for (String tag : post.getTags()) {
-                if (tag.toLowerCase().contains(lowerQuery)) {
-                    return true;
-                }
+        if (!hasActiveFilters()) {
+            viewModel.clearFilter();
+            if (latestPage != null) {
+                adapter.submitData(getViewLifecycleOwner().getLifecycle(), latestPage);
+            }
+            if (totalPostCount >= 0) {
+                updateEmptyView(totalPostCount == 0);
             }
+            return;
         }
 
-        // Search in mood
-        if (post.getMood() != null && post.getMood().toLowerCase().contains(lowerQuery)) {
-            return true;
+        PostFilter filter = new PostFilter();
+        filter.setQuery(currentSearchQuery);
+        if (!currentMoodFilter.equals("All Moods")) {
+            filter.setMoods(Collections.singleton(currentMoodFilter));
         }
-
-        return false;
+        viewModel.setFilter(filter, immediate);
     }
 
-    private boolean matchesMoodFilter(Post post, String moodFilter) {
-        if (moodFilter == null || moodFilter.equals("All Moods")) {
-            return true;
-        }
-
-        return post.getMood() != null && post.getMood().equals(moodFilter);
-    }
-
-    private void updateEmptyView(List<Post> filteredPosts) {
-        if (filteredPosts.isEmpty()) {
+    private void updateEmptyView(boolean isEmpty) {
+        if (isEmpty) {
             recyclerView.setVisibility(View.GONE);
             emptyStateView.setVisibility(View.VISIBLE);
 
             // Determine the reason for empty state
-            boolean hasFilters = !currentSearchQuery.isEmpty() || !currentMoodFilter.equals("All Moods");
-
-            if (hasFilters) {
+            if (hasActiveFilters()) {
                 // No results for search/filter
                 emptyStateIcon.setImageResource(R.drawable.ic_empty_search);
                 emptyStateTitle.setText("No matching posts");
                 emptyStateMessage.setText("Try adjusting your filters or search terms");
                 emptyStateButton.setVisibility(View.GONE);
-            } else if (allPosts.isEmpty()) {
+            } else if (totalPostCount <= 0) {
                 // Truly empty timeline
                 emptyStateIcon.setImageResource(R.drawable.ic_empty_timeline);
                 emptyStateTitle.setText("No posts yet");
@@ -0,0 +1,285 @@
+package com.example.smarttimeline.util;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AppExecutors {
+
+    // One set of pools for the whole process. Components that need their tasks run in order get a
+    // SerialExecutor, which queues on a shared pool instead of owning a thread of its own. Room's
+    // queries, network calls and image decodes each have their own pool, so a slow request or a large
+    // import never holds up the queries every screen is waiting on.
+
+    private static final String TAG = "AppExecutors";
+    private static final int DB_THREADS = 4;
+    private static final int IO_THREADS = 4;
+    private static final int NETWORK_THREADS = 3;
+    private static final int DECODE_THREADS = 2;
+    private static final int COORDINATOR_THREADS = 2;
+    private static final int COMPUTE_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static final long SLOW_TASK_MS = 2000;
+
+    private static volatile AppExecutors instance;
+
+    private final InstrumentedExecutor db;
+    private final InstrumentedExecutor io;
+    private final InstrumentedExecutor network;
+    private final InstrumentedExecutor decode;
+    private final InstrumentedExecutor compute;
+    private final InstrumentedExecutor coordinator;
+
+    private AppExecutors() {
+        db = new InstrumentedExecutor("db", DB_THREADS, Process.THREAD_PRIORITY_BACKGROUND);
+        io = new InstrumentedExecutor("io", IO_THREADS, Process.THREAD_PRIORITY_BACKGROUND);
+        network = new InstrumentedExecutor("network", NETWORK_THREADS, Process.THREAD_PRIORITY_BACKGROUND);
+        decode = new InstrumentedExecutor("decode", DECODE_THREADS, Process.THREAD_PRIORITY_BACKGROUND);
+        compute = new InstrumentedExecutor("compute", COMPUTE_THREADS,
+                Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE);
+        coordinator = new InstrumentedExecutor("coordinator", COORDINATOR_THREADS, Process.THREAD_PRIORITY_BACKGROUND);
+    }
+
+    public static AppExecutors getInstance() {
+        if (instance == null) {
+            synchronized (AppExecutors.class) {
+                if (instance == null) {
+                    instance = new AppExecutors();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Room's query executor: LiveData and paging queries, and reads that back a screen
+    public InstrumentedExecutor db() {
+        return db;
+    }
+
+    // Other blocking work: database writes, files, backups, index builds
+    public InstrumentedExecutor io() {
+        return io;
+    }
+
+    // Requests to remote services
+    public InstrumentedExecutor network() {
+        return network;
+    }
+
+    // Image decoding for the timeline and detail screens
+    public InstrumentedExecutor decode() {
+        return decode;
+    }
+
+    // CPU-bound work: ranking, formatting, building prompts
+    public InstrumentedExecutor compute() {
+        return compute;
+    }
+
+    // Jobs that spend most of their time waiting on work running elsewhere, e.g. a summary waiting on
+    // its part requests, so the wait never takes a thread from the pools that work runs on
+    public InstrumentedExecutor coordinator() {
+        return coordinator;
+    }
+
+    public SerialExecutor newSerialExecutor() {
+        return newSerialExecutor(io);
+    }
+
+    public SerialExecutor newSerialExecutor(Executor pool) {
+        return new SerialExecutor(pool);
+    }
+
+    public List<Stats> getStats() {
+        return Arrays.asList(db.getStats(), io.getStats(), network.getStats(), decode.getStats(),
+                compute.getStats(), coordinator.getStats());
+    }
+
+    public void logStats() {
+        for (Stats stats : getStats()) {
+            Log.d(TAG, stats.toString());
+        }
+    }
+
+    public static class InstrumentedExecutor extends ThreadPoolExecutor {
+
+        private final String name;
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private final AtomicLong totalWaitMs = new AtomicLong();
+        private final AtomicLong totalRunMs = new AtomicLong();
+        private final AtomicLong maxWaitMs = new AtomicLong();
+        private final AtomicLong tasksTimed = new AtomicLong();
+
+        InstrumentedExecutor(String name, int threads, int priority) {
+            super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new NamedThreadFactory(name, priority));
+            this.name = name;
+            // Idle pools shrink to zero threads
+            allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(new TimedTask(command, System.nanoTime()));
+            int depth = getQueue().size();
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+        }
+
+        @Override
+        protected void afterExecute(Runnable runnable, Throwable throwable) {
+            super.afterExecute(runnable, throwable);
+            if (!(runnable instanceof TimedTask)) {
+                return;
+            }
+
+            TimedTask task = (TimedTask) runnable;
+            long waitMs = TimeUnit.NANOSECONDS.toMillis(task.startedAt - task.enqueuedAt);
+            long runMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.startedAt);
+
+            tasksTimed.incrementAndGet();
+            totalWaitMs.addAndGet(waitMs);
+            totalRunMs.addAndGet(runMs);
+            maxWaitMs.accumulateAndGet(waitMs, Math::max);
+
+            if (waitMs + runMs > SLOW_TASK_MS) {
+                Log.w(TAG, name + " task took " + runMs + "ms after waiting " + waitMs
+                        + "ms (queue depth " + getQueue().size() + ")");
+            }
+        }
+
+        public Stats getStats() {
+            long timed = tasksTimed.get();
+            return new Stats(name, getPoolSize(), getActiveCount(), getQueue().size(), maxQueueDepth.get(),
+                    timed,
+                    timed > 0 ? totalWaitMs.get() / timed : 0,
+                    timed > 0 ? totalRunMs.get() / timed : 0,
+                    maxWaitMs.get());
+        }
+    }
+
+    public static class Stats {
+        public final String name;
+        public final int poolSize;
+        public final int activeCount;
+        public final int queueDepth;
+        public final int maxQueueDepth;
+        public final long completedTasks;
+        public final long averageWaitMs;
+        public final long averageRunMs;
+        public final long maxWaitMs;
+
+        Stats(String name, int poolSize, int activeCount, int queueDepth, int maxQueueDepth,
+              long completedTasks, long averageWaitMs, long averageRunMs, long maxWaitMs) {
+            this.name = name;
+            this.poolSize = poolSize;
+            this.activeCount = activeCount;
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.completedTasks = completedTasks;
+            this.averageWaitMs = averageWaitMs;
+            this.averageRunMs = averageRunMs;
+            this.maxWaitMs = maxWaitMs;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": threads=" + poolSize + " active=" + activeCount
+                    + " queued=" + queueDepth + " maxQueued=" + maxQueueDepth
+                    + " completed=" + completedTasks + " avgWait=" + averageWaitMs + "ms"
+                    + " avgRun=" + averageRunMs + "ms maxWait=" + maxWaitMs + "ms";
+        }
+    }
+
+    // Runs tasks one at a time, in submission order, on a shared pool
+    public static class SerialExecutor implements Executor {
+
+        private final Executor delegate;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private Runnable active;
+        private boolean shutdown;
+
+        SerialExecutor(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            if (shutdown) {
+                Log.w(TAG, "Task dropped, serial executor was shut down");
+                return;
+            }
+
+            tasks.offer(() -> {
+                try {
+                    command.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+            if (active == null) {
+                scheduleNext();
+            }
+        }
+
+        // Drops queued tasks and rejects new ones; a task already running finishes normally
+        public synchronized void shutdown() {
+            shutdown = true;
+            tasks.clear();
+        }
+
+        private synchronized void scheduleNext() {
+            active = tasks.poll();
+            if (active != null) {
+                delegate.execute(active);
+            }
+        }
+    }
+
+    private static class TimedTask implements Runnable {
+
+        private final Runnable delegate;
+        private final long enqueuedAt;
+        private long startedAt;
+
+        TimedTask(Runnable delegate, long enqueuedAt) {
+            this.delegate = delegate;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        @Override
+        public void run() {
+            startedAt = System.nanoTime();
+            delegate.run();
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final int priority;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix, int priority) {
+            this.prefix = prefix;
+            this.priority = priority;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(priority);
+                runnable.run();
+            }, prefix + "-" + count.incrementAndGet());
+        }
+    }
+}
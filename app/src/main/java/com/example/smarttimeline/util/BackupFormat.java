@@ -0,0 +1,26 @@
+package com.example.smarttimeline.util;
+
+public enum BackupFormat {
+
+    // Human-readable, the format every earlier version of the app wrote
+    JSON(".json", "application/json"),
+
+    // Compact gzip-compressed records, see BinaryBackup
+    BINARY(".stlbak", "application/octet-stream");
+
+    private final String fileExtension;
+    private final String mimeType;
+
+    BackupFormat(String fileExtension, String mimeType) {
+        this.fileExtension = fileExtension;
+        this.mimeType = mimeType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.smarttimeline.util;
+
+import com.example.smarttimeline.data.entity.Post;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public final class BinaryBackup {
+
+    // Layout (all integers big-endian):
+    //   header, uncompressed: magic "STLB", format version (short), post count (int), export date (long)
+    //   body, gzip: one record per post as [length (int)][fields], then a length of -1
+    //   footer, inside the gzip body: records written (int), CRC32 of the body up to the footer (long)
+    // Records are length-prefixed so a newer version can append fields that older readers skip; a
+    // backup of any version is read that way, and the layout must only ever grow by appending.
+    // Version 2 appended the post id and updatedAt to each record.
+
+    public static final int MAGIC = 0x53544C42;
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int END_OF_RECORDS = -1;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    private static final int NULL_STRING = -1;
+
+    private BinaryBackup() {
+    }
+
+    public static boolean startsWithMagic(byte[] head, int length) {
+        return length >= 4
+                && (((head[0] & 0xFF) << 24) | ((head[1] & 0xFF) << 16)
+                | ((head[2] & 0xFF) << 8) | (head[3] & 0xFF)) == MAGIC;
+    }
+
+    public static class Writer implements Closeable {
+
+        private final GZIPOutputStream compressed;
+        private final CheckedOutputStream checked;
+        private final DataOutputStream body;
+        private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(1024);
+        private final DataOutputStream record = new DataOutputStream(recordBuffer);
+        private int written;
+
+        public Writer(OutputStream outputStream, int postCount, long exportDate) throws IOException {
+            DataOutputStream header = new DataOutputStream(outputStream);
+            header.writeInt(MAGIC);
+            header.writeShort(FORMAT_VERSION);
+            header.writeInt(postCount);
+            header.writeLong(exportDate);
+            header.flush();
+
+            compressed = new GZIPOutputStream(outputStream, 64 * 1024);
+            checked = new CheckedOutputStream(compressed, new CRC32());
+            body = new DataOutputStream(checked);
+        }
+
+        public void write(Post post) throws IOException {
+            recordBuffer.reset();
+            record.writeLong(post.getTimestamp());
+            writeString(record, post.getText());
+            writeString(record, post.getImageUri());
+            writeString(record, post.getLocation());
+            writeString(record, post.getMood());
+
+            List<String> tags = post.getTags();
+            record.writeInt(tags != null ? tags.size() : 0);
+            if (tags != null) {
+                for (String tag : tags) {
+                    writeString(record, tag);
+                }
+            }
+            record.writeInt(post.getId());
+            record.writeLong(post.getUpdatedAt());
+            record.flush();
+
+            body.writeInt(recordBuffer.size());
+            recordBuffer.writeTo(body);
+            written++;
+        }
+
+        public int getWrittenCount() {
+            return written;
+        }
+
+        // Writes the footer and finishes the gzip stream; the underlying stream is left to the caller
+        public void finish() throws IOException {
+            body.writeInt(END_OF_RECORDS);
+            long checksum = checked.getChecksum().getValue();
+            body.writeInt(written);
+            body.writeLong(checksum);
+            body.flush();
+            compressed.finish();
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(NULL_STRING);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    public static class Reader implements Closeable {
+
+        private final CheckedInputStream checked;
+        private final DataInputStream body;
+        private final int declaredCount;
+        private final long exportDate;
+        private byte[] recordBuffer = new byte[1024];
+        private int read;
+        private boolean finished;
+
+        public Reader(InputStream inputStream) throws IOException {
+            DataInputStream header = new DataInputStream(inputStream);
+            if (header.readInt() != MAGIC) {
+                throw new IOException("Not a SmartTimeline backup");
+            }
+
+            // Newer versions only append record fields, which next() skips
+            header.readUnsignedShort();
+            declaredCount = header.readInt();
+            exportDate = header.readLong();
+            checked = new CheckedInputStream(new GZIPInputStream(inputStream, 64 * 1024), new CRC32());
+            body = new DataInputStream(checked);
+        }
+
+        public int getDeclaredCount() {
+            return declaredCount;
+        }
+
+        public long getExportDate() {
+            return exportDate;
+        }
+
+        // Returns the next post, or null once the footer has been read and verified
+        public Post next() throws IOException {
+            if (finished) {
+                return null;
+            }
+
+            int length = body.readInt();
+            if (length == END_OF_RECORDS) {
+                verifyFooter();
+                finished = true;
+                return null;
+            }
+            if (length < 0 || length > MAX_RECORD_SIZE) {
+                throw new IOException("Backup is corrupted (record length " + length + ")");
+            }
+
+            if (recordBuffer.length < length) {
+                recordBuffer = new byte[Math.max(length, recordBuffer.length * 2)];
+            }
+            body.readFully(recordBuffer, 0, length);
+            read++;
+
+            // Fields a newer writer appends after these are ignored
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(recordBuffer, 0, length));
+            Post post = new Post();
+            post.setTimestamp(record.readLong());
+            post.setText(readString(record));
+            post.setImageUri(readString(record));
+            post.setLocation(readString(record));
+            post.setMood(readString(record));
+
+            int tagCount = record.readInt();
+            if (tagCount < 0 || tagCount > record.available() / 4) {
+                throw new IOException("Backup is corrupted (tag count " + tagCount + ")");
+            }
+            List<String> tags = new ArrayList<>(tagCount);
+            for (int i = 0; i < tagCount; i++) {
+                tags.add(readString(record));
+            }
+            post.setTags(tags);
+
+            if (record.available() >= 12) {
+                post.setId(record.readInt());
+                post.setUpdatedAt(record.readLong());
+            }
+            return post;
+        }
+
+        private void verifyFooter() throws IOException {
+            long checksum = checked.getChecksum().getValue();
+            int count = body.readInt();
+            long expectedChecksum = body.readLong();
+            if (count != read || expectedChecksum != checksum) {
+                throw new IOException("Backup is corrupted (checksum mismatch)");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            if (length == NULL_STRING) {
+                return null;
+            }
+            if (length < 0 || length > in.available()) {
+                throw new IOException("Backup is corrupted (string length " + length + ")");
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.smarttimeline.util;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public final class BitmapDecoder {
+
+    private static final String TAG = "BitmapDecoder";
+
+    private BitmapDecoder() {
+    }
+
+    // Decodes an image no smaller than width x height, skipping whole powers of two of the
+    // original resolution so a large photo is never fully loaded. Returns null if unreadable.
+    public static Bitmap decodeSampled(Context context, String imageUri, int width, int height) {
+        try {
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            try (InputStream in = open(context, imageUri)) {
+                BitmapFactory.decodeStream(in, null, bounds);
+            }
+            if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+                return null;
+            }
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, width, height);
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            try (InputStream in = open(context, imageUri)) {
+                return BitmapFactory.decodeStream(in, null, options);
+            }
+        } catch (IOException | SecurityException e) {
+            // The picked image may have been deleted or its permission revoked
+            Log.w(TAG, "Could not decode " + imageUri, e);
+            return null;
+        }
+    }
+
+    // Largest power of two that keeps both sides at or above the target, as BitmapFactory expects
+    static int sampleSize(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        while (sourceWidth / (sampleSize * 2) >= targetWidth && sourceHeight / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static InputStream open(Context context, String imageUri) throws IOException {
+        Uri uri = Uri.parse(imageUri);
+        if (uri.getScheme() == null) {
+            return new FileInputStream(imageUri);
+        }
+
+        InputStream in = context.getContentResolver().openInputStream(uri);
+        if (in == null) {
+            throw new IOException("No content for " + imageUri);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.smarttimeline.util;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+final class CachedDateFormat {
+
+    // Thread-safe SimpleDateFormat for patterns whose output only changes between buckets of
+    // local time, e.g. once per day for "MMM dd, yyyy" or once per minute of the day for "HH:mm".
+    // Every bucket is formatted once by a per-thread formatter and then served from the cache, so
+    // formatting the many posts that share a day costs a lookup. java.time would avoid the
+    // ThreadLocal, but needs API 26 and minSdk is 24.
+
+    static final long MINUTE_MS = 60_000L;
+    static final long DAY_MS = 24 * 60 * MINUTE_MS;
+
+    // Day buckets are unbounded in principle; a journal spanning decades still fits easily
+    private static final int MAX_DAY_ENTRIES = 4096;
+
+    private final TimeZone zone;
+    private final long bucketMillis;
+    private final ThreadLocal<SimpleDateFormat> format;
+
+    // Set for patterns that repeat every day (time of day); indexed by bucket within the day
+    private final AtomicReferenceArray<String> dailyCycle;
+    private final Map<Long, String> byBucket;
+
+    private CachedDateFormat(String pattern, Locale locale, TimeZone zone, long bucketMillis, boolean repeatsDaily) {
+        this.zone = zone;
+        this.bucketMillis = bucketMillis;
+        this.format = new ThreadLocal<SimpleDateFormat>() {
+            @Override
+            protected SimpleDateFormat initialValue() {
+                SimpleDateFormat dateFormat = new SimpleDateFormat(pattern, locale);
+                dateFormat.setTimeZone(zone);
+                return dateFormat;
+            }
+        };
+        this.dailyCycle = repeatsDaily ? new AtomicReferenceArray<>((int) (DAY_MS / bucketMillis)) : null;
+        this.byBucket = repeatsDaily ? null : new ConcurrentHashMap<>();
+    }
+
+    // Output determined by the local calendar day
+    static CachedDateFormat perDay(String pattern, Locale locale, TimeZone zone) {
+        return new CachedDateFormat(pattern, locale, zone, DAY_MS, false);
+    }
+
+    // Output determined by the minute of the local day, whatever the date
+    static CachedDateFormat perMinuteOfDay(String pattern, Locale locale, TimeZone zone) {
+        return new CachedDateFormat(pattern, locale, zone, MINUTE_MS, true);
+    }
+
+    // No caching; just a formatter per thread, for patterns with seconds or finer
+    static CachedDateFormat uncached(String pattern, Locale locale, TimeZone zone) {
+        return new CachedDateFormat(pattern, locale, zone, 0, false);
+    }
+
+    String format(long timestamp) {
+        if (bucketMillis == 0) {
+            return format.get().format(new Date(timestamp));
+        }
+
+        long bucket = Math.floorDiv(timestamp + zone.getOffset(timestamp), bucketMillis);
+        if (dailyCycle != null) {
+            int index = (int) Math.floorMod(bucket, (long) dailyCycle.length());
+            String cached = dailyCycle.get(index);
+            if (cached == null) {
+                cached = format.get().format(new Date(timestamp));
+                dailyCycle.set(index, cached);
+            }
+            return cached;
+        }
+
+        String cached = byBucket.get(bucket);
+        if (cached == null) {
+            cached = format.get().format(new Date(timestamp));
+            if (byBucket.size() >= MAX_DAY_ENTRIES) {
+                byBucket.clear();
+            }
+            byBucket.put(bucket, cached);
+        }
+        return cached;
+    }
+}
@@ -4,7 +4,7 @@ public class Constants {
 
     // Database
     public static final String DATABASE_NAME = "smarttimeline_database";
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 10;
 
     // SharedPreferences
     public static final String PREFS_NAME = "smarttimeline_prefs";
@@ -12,6 +12,7 @@ public class Constants {
     public static final String PREFS_THEME = "theme_preference";
     public static final String PREFS_NOTIFICATIONS_ENABLED = "notifications_enabled";
     public static final String PREFS_FIRST_LAUNCH = "first_launch";
+    public static final String PREFS_LAST_BACKUP_TIME = "last_backup_time";
 
     // Period Types
     public static final String PERIOD_DAILY = "Daily";
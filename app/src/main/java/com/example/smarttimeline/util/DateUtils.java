@@ -5,34 +5,77 @@ import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
+import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
 public class DateUtils {
 
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-    private static final SimpleDateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm", Locale.getDefault());
-    private static final SimpleDateFormat DATETIME_FORMAT = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
-    private static final SimpleDateFormat FULL_DATETIME_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-    private static final SimpleDateFormat ISO_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.getDefault());
+    // Safe to call from any thread. Formatters are rebuilt when the default locale or time zone
+    // changes, so times and day keys follow the device after travel or a time zone setting change.
+    private static volatile Formats formats = new Formats(Locale.getDefault(), TimeZone.getDefault());
+
+    private static final class Formats {
+        final Locale locale;
+        final TimeZone zone;
+        final CachedDateFormat date;
+        final CachedDateFormat time;
+        final CachedDateFormat day;
+        final CachedDateFormat fullDateTime;
+        final CachedDateFormat iso;
+
+        Formats(Locale locale, TimeZone zone) {
+            this.locale = locale;
+            this.zone = zone;
+            this.date = CachedDateFormat.perDay("MMM dd, yyyy", locale, zone);
+            this.time = CachedDateFormat.perMinuteOfDay("HH:mm", locale, zone);
+            // A key rather than display text, so always in ASCII digits
+            this.day = CachedDateFormat.perDay("yyyy-MM-dd", Locale.US, zone);
+            this.fullDateTime = CachedDateFormat.uncached("yyyy-MM-dd HH:mm:ss", locale, zone);
+            this.iso = CachedDateFormat.uncached("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", locale, zone);
+        }
+    }
 
+    private static Formats formats() {
+        Formats current = formats;
+        // TimeZone.getDefault() returns a copy; compare ids rather than instances
+        TimeZone zone = TimeZone.getDefault();
+        if (!current.locale.equals(Locale.getDefault()) || !current.zone.getID().equals(zone.getID())) {
+            current = new Formats(Locale.getDefault(), zone);
+            formats = current;
+        }
+        return current;
+    }
+
+    // e.g. "Jan 11, 2026"
     public static String formatDate(long timestamp) {
-        return DATE_FORMAT.format(new Date(timestamp));
+        return formats().date.format(timestamp);
     }
 
+    // e.g. "14:30"
     public static String formatTime(long timestamp) {
-        return TIME_FORMAT.format(new Date(timestamp));
+        return formats().time.format(timestamp);
     }
 
+    // e.g. "Jan 11, 2026 14:30"; built from the cached day and minute so no formatter runs
     public static String formatDateTime(long timestamp) {
-        return DATETIME_FORMAT.format(new Date(timestamp));
+        Formats current = formats();
+        String date = current.date.format(timestamp);
+        String time = current.time.format(timestamp);
+        return new StringBuilder(date.length() + 1 + time.length())
+                .append(date).append(' ').append(time).toString();
+    }
+
+    // e.g. "2026-01-11"; the local calendar day analytics count a post under
+    public static String formatDay(long timestamp) {
+        return formats().day.format(timestamp);
     }
 
     public static String formatFullDateTime(long timestamp) {
-        return FULL_DATETIME_FORMAT.format(new Date(timestamp));
+        return formats().fullDateTime.format(timestamp);
     }
 
     public static String formatISODateTime(long timestamp) {
-        return ISO_FORMAT.format(new Date(timestamp));
+        return formats().iso.format(timestamp);
     }
 
     public static String getRelativeTimeString(long timestamp) {
@@ -5,17 +5,28 @@ import android.net.Uri;
 import android.util.Log;
 
 import com.example.smarttimeline.data.entity.Post;
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.lang.reflect.Type;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -24,7 +35,14 @@ public class ExportImportManager {
 
     private static final String TAG = "ExportImportManager";
     private static final String EXPORT_FILE_PREFIX = "smarttimeline_backup_";
-    private static final String EXPORT_FILE_EXTENSION = ".json";
+    private static final String DELTA_FILE_PREFIX = "smarttimeline_changes_";
+    private static final String EXPORT_VERSION = "2.0";
+    private static final String MANIFEST_TYPE_FULL = "full";
+    private static final String MANIFEST_TYPE_DELTA = "delta";
+    private static final int EXPORT_BATCH_SIZE = 500;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int IMPORT_BATCH_SIZE = 500;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
 
     private final Context context;
     private final Gson gson;
@@ -33,46 +51,140 @@ public class ExportImportManager {
         this.context = context;
         this.gson = new GsonBuilder()
                 .setPrettyPrinting()
+                .setExclusionStrategies(new DeviceLocalFieldExclusion())
                 .create();
     }
 
+    // Thumbnails are files on this device. An import keeps the ones this device has for the same
+    // image and generates the rest afterwards (PostRepository.attachImportedThumbnails)
+    private static class DeviceLocalFieldExclusion implements ExclusionStrategy {
+        @Override
+        public boolean shouldSkipField(FieldAttributes field) {
+            return field.getDeclaringClass() == Post.class
+                    && (field.getName().equals("thumbnailPath") || field.getName().equals("placeholderColor"));
+        }
+
+        @Override
+        public boolean shouldSkipClass(Class<?> clazz) {
+            return false;
+        }
+    }
+
     public interface ExportCallback {
         void onSuccess(String message);
         void onError(String error);
+
+        default void onProgress(int exported, int total) {
+        }
     }
 
-    public interface ImportCallback {
-        void onSuccess(List<Post> posts, String message);
-        void onError(String error);
+    // Supplies posts in ascending id order, the next batch starting after lastId
+    public interface PostBatchLoader {
+        List<Post> loadAfter(int lastId, int limit);
+    }
+
+    // Where imported data goes. Posts with id 0 become new rows; posts keeping their id replace
+    // the row with that id
+    public interface ImportTarget {
+        void clearExisting();
+        void writePosts(List<Post> batch);
+        void deletePosts(List<Integer> postIds);
+    }
+
+    public static class ImportResult {
+        public final int importedCount;
+        public final int deletedCount;
+        public final boolean incremental;
+
+        ImportResult(int importedCount, int deletedCount, boolean incremental) {
+            this.importedCount = importedCount;
+            this.deletedCount = deletedCount;
+            this.incremental = incremental;
+        }
+    }
+
+    // total is the post count declared in the file, or -1 when the file does not state one
+    public interface ImportProgressListener {
+        void onProgress(int imported, int total);
     }
 
-    public void exportToJson(Uri destinationUri, List<Post> posts, ExportCallback callback) {
-        if (posts == null || posts.isEmpty()) {
+    private interface PostWriter {
+        void write(Post post) throws IOException;
+    }
+
+    public void exportBackup(Uri destinationUri, BackupFormat format, int totalPosts,
+                             PostBatchLoader loader, ExportCallback callback) {
+        if (format == BackupFormat.BINARY) {
+            exportToBinary(destinationUri, totalPosts, loader, callback);
+        } else {
+            exportToJson(destinationUri, totalPosts, loader, callback);
+        }
+    }
+
+    // Streams posts batch by batch straight into the output, so memory use does not grow
+    // with the size of the journal
+    public void exportToJson(Uri destinationUri, int totalPosts, PostBatchLoader loader, ExportCallback callback) {
+        if (totalPosts <= 0) {
             callback.onError("No posts to export");
             return;
         }
 
-        try {
-            ExportData exportData = new ExportData();
-            exportData.exportDate = System.currentTimeMillis();
-            exportData.version = "1.0";
-            exportData.postCount = posts.size();
-            exportData.posts = posts;
+        try (OutputStream outputStream = context.getContentResolver().openOutputStream(destinationUri)) {
+            if (outputStream == null) {
+                callback.onError("Failed to open output stream");
+                return;
+            }
+
+            JsonWriter writer = new JsonWriter(new BufferedWriter(
+                    new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE));
+            writer.setIndent("  ");
+
+            writer.beginObject();
+            writeManifest(writer, MANIFEST_TYPE_FULL, 0, totalPosts, 0);
+            writer.name("posts").beginArray();
+
+            int exported = writeBatches(totalPosts, loader, callback,
+                    post -> gson.toJson(post, Post.class, writer));
 
-            String jsonData = gson.toJson(exportData);
+            writer.endArray();
+            writer.endObject();
+            writer.flush();
 
-            OutputStream outputStream = context.getContentResolver().openOutputStream(destinationUri);
+            callback.onSuccess("Successfully exported " + exported + " posts");
+            Log.d(TAG, "Export successful: " + exported + " posts");
+
+        } catch (IOException e) {
+            Log.e(TAG, "Export failed", e);
+            callback.onError("Export failed: " + e.getMessage());
+        } catch (Exception e) {
+            Log.e(TAG, "Unexpected error during export", e);
+            callback.onError("Unexpected error: " + e.getMessage());
+        }
+    }
+
+    // Same streaming export in the compact BinaryBackup layout
+    public void exportToBinary(Uri destinationUri, int totalPosts, PostBatchLoader loader, ExportCallback callback) {
+        if (totalPosts <= 0) {
+            callback.onError("No posts to export");
+            return;
+        }
+
+        try (OutputStream outputStream = context.getContentResolver().openOutputStream(destinationUri)) {
             if (outputStream == null) {
                 callback.onError("Failed to open output stream");
                 return;
             }
 
-            outputStream.write(jsonData.getBytes());
-            outputStream.flush();
-            outputStream.close();
+            BufferedOutputStream bufferedOutput = new BufferedOutputStream(outputStream, WRITE_BUFFER_SIZE);
+            BinaryBackup.Writer writer = new BinaryBackup.Writer(bufferedOutput, totalPosts, System.currentTimeMillis());
+
+            int exported = writeBatches(totalPosts, loader, callback, writer::write);
 
-            callback.onSuccess("Successfully exported " + posts.size() + " posts");
-            Log.d(TAG, "Export successful: " + posts.size() + " posts");
+            writer.finish();
+            bufferedOutput.flush();
+
+            callback.onSuccess("Successfully exported " + exported + " posts");
+            Log.d(TAG, "Binary export successful: " + exported + " posts");
 
         } catch (IOException e) {
             Log.e(TAG, "Export failed", e);
@@ -83,71 +195,290 @@ public class ExportImportManager {
         }
     }
 
-    public void importFromJson(Uri sourceUri, ImportCallback callback) {
-        try {
-            InputStream inputStream = context.getContentResolver().openInputStream(sourceUri);
-            if (inputStream == null) {
-                callback.onError("Failed to open input stream");
+    // Writes only the posts changed after `since` plus the ids deleted since then, headed by a
+    // manifest that tells the importer to replay it onto the existing posts rather than restore it
+    public void exportDelta(Uri destinationUri, long since, int changedPosts, List<Integer> deletedPostIds,
+                            PostBatchLoader loader, ExportCallback callback) {
+        try (OutputStream outputStream = context.getContentResolver().openOutputStream(destinationUri)) {
+            if (outputStream == null) {
+                callback.onError("Failed to open output stream");
                 return;
             }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-            StringBuilder jsonBuilder = new StringBuilder();
-            String line;
+            JsonWriter writer = new JsonWriter(new BufferedWriter(
+                    new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE));
+            writer.setIndent("  ");
+
+            writer.beginObject();
+            writeManifest(writer, MANIFEST_TYPE_DELTA, since, changedPosts, deletedPostIds.size());
 
-            while ((line = reader.readLine()) != null) {
-                jsonBuilder.append(line);
+            writer.name("deletedPostIds").beginArray();
+            for (Integer postId : deletedPostIds) {
+                writer.value(postId);
             }
+            writer.endArray();
 
-            reader.close();
-            inputStream.close();
+            writer.name("posts").beginArray();
+            int exported = changedPosts > 0
+                    ? writeBatches(changedPosts, loader, callback, post -> gson.toJson(post, Post.class, writer))
+                    : 0;
+            writer.endArray();
+            writer.endObject();
+            writer.flush();
 
-            String jsonData = jsonBuilder.toString();
+            if (exported == 0 && deletedPostIds.isEmpty()) {
+                callback.onSuccess("No changes since the last backup");
+            } else {
+                callback.onSuccess("Exported " + exported + " changed posts and "
+                        + deletedPostIds.size() + " deletions");
+            }
+            Log.d(TAG, "Delta export successful: " + exported + " posts, " + deletedPostIds.size() + " deletions");
 
-            if (jsonData.trim().isEmpty()) {
-                callback.onError("File is empty");
-                return;
+        } catch (IOException e) {
+            Log.e(TAG, "Export failed", e);
+            callback.onError("Export failed: " + e.getMessage());
+        } catch (Exception e) {
+            Log.e(TAG, "Unexpected error during export", e);
+            callback.onError("Unexpected error: " + e.getMessage());
+        }
+    }
+
+    // The top-level version/exportDate/postCount fields stay for readers that predate the manifest
+    private void writeManifest(JsonWriter writer, String type, long since, int postCount, int deletedCount)
+            throws IOException {
+        long now = System.currentTimeMillis();
+
+        writer.name("version").value(EXPORT_VERSION);
+        writer.name("manifest").beginObject();
+        writer.name("type").value(type);
+        writer.name("createdAt").value(now);
+        if (MANIFEST_TYPE_DELTA.equals(type)) {
+            writer.name("since").value(since);
+        }
+        writer.name("postCount").value(postCount);
+        writer.name("deletedCount").value(deletedCount);
+        writer.endObject();
+        writer.name("exportDate").value(now);
+        writer.name("postCount").value(postCount);
+    }
+
+    private int writeBatches(int totalPosts, PostBatchLoader loader, ExportCallback callback,
+                             PostWriter postWriter) throws IOException {
+        int exported = 0;
+        int lastId = 0;
+        List<Post> batch = loader.loadAfter(lastId, EXPORT_BATCH_SIZE);
+
+        while (!batch.isEmpty()) {
+            for (Post post : batch) {
+                postWriter.write(post);
             }
 
-            ExportData exportData = gson.fromJson(jsonData, ExportData.class);
+            exported += batch.size();
+            lastId = batch.get(batch.size() - 1).getId();
+            callback.onProgress(exported, Math.max(totalPosts, exported));
 
-            if (exportData == null || exportData.posts == null || exportData.posts.isEmpty()) {
-                callback.onError("No valid posts found in file");
-                return;
+            batch = batch.size() < EXPORT_BATCH_SIZE
+                    ? Collections.<Post>emptyList()
+                    : loader.loadAfter(lastId, EXPORT_BATCH_SIZE);
+        }
+        return exported;
+    }
+
+    // Reads either backup format, told apart by the binary magic number, and hands posts to the
+    // target in batches so the file is never held in memory as a whole. Full backups are restored
+    // (replacing existing posts and keeping their ids) or merged in as new posts; incremental
+    // backups are always replayed onto the existing posts. Malformed input is thrown as an
+    // unchecked exception so a surrounding transaction can roll back
+    public ImportResult importBackup(Uri sourceUri, boolean replaceExisting, ImportTarget target,
+                                     ImportProgressListener listener) {
+        try (InputStream inputStream = context.getContentResolver().openInputStream(sourceUri)) {
+            if (inputStream == null) {
+                throw new IllegalStateException("Failed to open input stream");
             }
 
-            List<Post> posts = exportData.posts;
+            BufferedInputStream bufferedInput = new BufferedInputStream(inputStream, READ_BUFFER_SIZE);
+            byte[] head = new byte[4];
+            bufferedInput.mark(head.length);
+            int headLength = bufferedInput.read(head);
+            bufferedInput.reset();
 
-            for (Post post : posts) {
-                post.setId(0);
+            ImportResult result = BinaryBackup.startsWithMagic(head, headLength)
+                    ? readBinary(bufferedInput, replaceExisting, target, listener)
+                    : readJson(bufferedInput, replaceExisting, target, listener);
+
+            if (!result.incremental && result.importedCount == 0) {
+                throw new IllegalStateException("No valid posts found in file");
             }
 
-            callback.onSuccess(posts, "Successfully imported " + posts.size() + " posts");
-            Log.d(TAG, "Import successful: " + posts.size() + " posts");
+            Log.d(TAG, "Import successful: " + result.importedCount + " posts, "
+                    + result.deletedCount + " deletions");
+            return result;
 
         } catch (IOException e) {
             Log.e(TAG, "Import failed", e);
-            callback.onError("Import failed: " + e.getMessage());
-        } catch (Exception e) {
-            Log.e(TAG, "Unexpected error during import", e);
-            callback.onError("Invalid file format: " + e.getMessage());
+            throw new UncheckedIOException(e);
         }
     }
 
-    public String generateExportFileName() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
-        String timestamp = sdf.format(new Date());
-        return EXPORT_FILE_PREFIX + timestamp + EXPORT_FILE_EXTENSION;
+    private ImportResult readJson(InputStream inputStream, boolean replaceExisting, ImportTarget target,
+                                  ImportProgressListener listener) throws IOException {
+        JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8), READ_BUFFER_SIZE));
+
+        // Files without a manifest predate incremental backups and are always full
+        boolean incremental = false;
+        int declaredCount = -1;
+        int imported = 0;
+        int deleted = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("manifest".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                incremental = MANIFEST_TYPE_DELTA.equals(readManifestType(reader));
+            } else if ("postCount".equals(name) && reader.peek() == JsonToken.NUMBER) {
+                declaredCount = reader.nextInt();
+            } else if ("deletedPostIds".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                deleted += readDeletedIds(reader, target);
+            } else if ("posts".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                boolean restore = !incremental && replaceExisting;
+                if (restore) {
+                    target.clearExisting();
+                }
+
+                ImportBatcher batcher = new ImportBatcher(target, listener, declaredCount, incremental || restore);
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    batcher.add(gson.fromJson(reader, Post.class));
+                }
+                reader.endArray();
+                imported += batcher.finish();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new ImportResult(imported, deleted, incremental);
     }
 
-    public boolean isValidExportFile(String fileName) {
-        return fileName != null && fileName.endsWith(EXPORT_FILE_EXTENSION);
+    private String readManifestType(JsonReader reader) throws IOException {
+        String type = MANIFEST_TYPE_FULL;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("type".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                type = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return type;
+    }
+
+    private int readDeletedIds(JsonReader reader, ImportTarget target) throws IOException {
+        // Batched to stay under SQLite's bound-parameter limit
+        List<Integer> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        int deleted = 0;
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            batch.add(reader.nextInt());
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                target.deletePosts(batch);
+                deleted += batch.size();
+                batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            }
+        }
+        reader.endArray();
+
+        if (!batch.isEmpty()) {
+            target.deletePosts(batch);
+            deleted += batch.size();
+        }
+        return deleted;
+    }
+
+    private ImportResult readBinary(InputStream inputStream, boolean replaceExisting, ImportTarget target,
+                                    ImportProgressListener listener) throws IOException {
+        BinaryBackup.Reader reader = new BinaryBackup.Reader(inputStream);
+        if (replaceExisting) {
+            target.clearExisting();
+        }
+
+        ImportBatcher batcher = new ImportBatcher(target, listener, reader.getDeclaredCount(), replaceExisting);
+        Post post;
+        while ((post = reader.next()) != null) {
+            batcher.add(post);
+        }
+
+        // The footer checksum is only known once every record is read; a mismatch throws above and
+        // the caller's transaction discards the batches already handed over
+        return new ImportResult(batcher.finish(), 0, false);
+    }
+
+    private static class ImportBatcher {
+
+        private final ImportTarget target;
+        private final ImportProgressListener listener;
+        private final int declaredCount;
+        private final boolean keepIds;
+        private final long importedAt = System.currentTimeMillis();
+        private List<Post> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        private int imported;
+
+        ImportBatcher(ImportTarget target, ImportProgressListener listener, int declaredCount, boolean keepIds) {
+            this.target = target;
+            this.listener = listener;
+            this.declaredCount = declaredCount;
+            this.keepIds = keepIds;
+        }
+
+        void add(Post post) {
+            if (post == null) {
+                return;
+            }
+
+            // Merged posts are new to this journal, so the next incremental backup must pick them up
+            if (!keepIds) {
+                post.setId(0);
+                post.setUpdatedAt(importedAt);
+            }
+            batch.add(post);
+
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                flush();
+                batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            }
+        }
+
+        int finish() {
+            if (!batch.isEmpty()) {
+                flush();
+            }
+            return imported;
+        }
+
+        private void flush() {
+            target.writePosts(batch);
+            imported += batch.size();
+            listener.onProgress(imported, declaredCount);
+        }
     }
 
-    public static class ExportData {
-        public String version;
-        public long exportDate;
-        public int postCount;
-        public List<Post> posts;
+    public String generateExportFileName(BackupFormat format, boolean incremental) {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+        String timestamp = sdf.format(new Date());
+        return (incremental ? DELTA_FILE_PREFIX : EXPORT_FILE_PREFIX) + timestamp + format.getFileExtension();
+    }
+    public boolean isValidExportFile(String fileName) {
+        if (fileName == null) {
+            return false;
+        }
+        for (BackupFormat format : BackupFormat.values()) {
+            if (fileName.endsWith(format.getFileExtension())) {
+                return true;
+            }
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
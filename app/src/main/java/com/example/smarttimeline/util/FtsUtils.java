@@ -0,0 +1,73 @@
+package com.example.smarttimeline.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+
+public class FtsUtils {
+
+    // Column order of posts_fts: text, location, mood, tags
+    private static final double[] COLUMN_WEIGHTS = {1.0, 0.6, 0.5, 0.8};
+
+    // Turns free text into an FTS4 prefix query, e.g. "Caf lond" -> "caf* lond*".
+    // Everything except letters and digits is dropped so user input can never form FTS operators.
+    public static String buildMatchQuery(String rawQuery) {
+        if (rawQuery == null) {
+            return "";
+        }
+
+        StringBuilder query = new StringBuilder();
+        StringBuilder token = new StringBuilder();
+        String lower = rawQuery.toLowerCase(Locale.ROOT);
+
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append(token).append('*');
+                token.setLength(0);
+            }
+        }
+
+        return query.toString();
+    }
+
+    // Scores a row from matchinfo(posts_fts, 'pcx'): for every phrase and column, the share of
+    // all hits for that phrase that landed in this row, weighted by column.
+    public static double rank(byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 8) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phraseCount = buffer.getInt(0);
+        int columnCount = buffer.getInt(4);
+        double score = 0;
+
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int offset = 4 * (2 + 3 * (phrase * columnCount + column));
+                if (offset + 8 > matchInfo.length) {
+                    return score;
+                }
+
+                int hitsInRow = buffer.getInt(offset);
+                int hitsInAllRows = buffer.getInt(offset + 4);
+                if (hitsInRow > 0 && hitsInAllRows > 0) {
+                    double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                    score += weight * hitsInRow / hitsInAllRows;
+                }
+            }
+        }
+
+        return score;
+    }
+
+    private FtsUtils() {
+        // Prevent instantiation
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.smarttimeline.util;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.ColorDrawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.example.smarttimeline.R;
+
+import java.io.File;
+import java.util.concurrent.Future;
+
+public class ImageLoader {
+
+    // Loads post images sized for the view showing them: memory cache first, then the post's saved
+    // thumbnail, then the disk thumbnail cache, and only then a sampled decode of the original. Decodes
+    // run on their own pool so a fast scroll never queues behind database or file work.
+
+    private static final long DISK_CACHE_BYTES = 50L * 1024 * 1024;
+
+    private static volatile ImageLoader instance;
+
+    private final Context context;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ThumbnailDiskCache diskCache;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ImageLoader(Context context) {
+        this.context = context.getApplicationContext();
+
+        // An eighth of the heap, measured in bytes of pixel data
+        int cacheBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        this.memoryCache = new LruCache<String, Bitmap>(cacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+        this.diskCache = new ThumbnailDiskCache(
+                new File(this.context.getCacheDir(), "thumbnails"), DISK_CACHE_BYTES);
+    }
+
+    public static ImageLoader getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ImageLoader.class) {
+                if (instance == null) {
+                    instance = new ImageLoader(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void load(String imageUri, ImageView imageView) {
+        load(imageUri, null, 0, imageView);
+    }
+
+    // Prefers the thumbnail generated when the post was saved, drawing placeholderColor (if not 0)
+    // until it has decoded. Posts without one go through the cache of sampled originals.
+    public void load(String imageUri, String thumbnailPath, int placeholderColor, ImageView imageView) {
+        cancel(imageView);
+
+        int[] size = targetSize(imageView);
+        String key = cacheKey(imageUri, size[0], size[1]);
+
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+            return;
+        }
+
+        imageView.setImageDrawable(placeholderColor != 0 ? new ColorDrawable(placeholderColor) : null);
+        Request request = new Request(imageView, key);
+        imageView.setTag(R.id.image_loader_request, request);
+        request.future = AppExecutors.getInstance().decode().submit(() -> {
+            Bitmap bitmap = loadThumbnail(request, imageUri, thumbnailPath, size[0], size[1]);
+            if (bitmap != null) {
+                mainHandler.post(() -> deliver(request, bitmap));
+            }
+        });
+    }
+
+    // Call when a view is recycled or its image is hidden, so off-screen rows do no decoding
+    public void cancel(ImageView imageView) {
+        Object tag = imageView.getTag(R.id.image_loader_request);
+        if (tag instanceof Request) {
+            ((Request) tag).cancel();
+            imageView.setTag(R.id.image_loader_request, null);
+        }
+    }
+
+    public void clear(ImageView imageView) {
+        cancel(imageView);
+        imageView.setImageDrawable(null);
+    }
+
+    private void deliver(Request request, Bitmap bitmap) {
+        if (request.cancelled || request.imageView.getTag(R.id.image_loader_request) != request) {
+            return;
+        }
+        request.imageView.setTag(R.id.image_loader_request, null);
+        request.imageView.setImageBitmap(bitmap);
+    }
+
+    private Bitmap loadThumbnail(Request request, String imageUri, String thumbnailPath, int width, int height) {
+        Bitmap bitmap = null;
+        if (thumbnailPath != null && new File(thumbnailPath).exists()) {
+            bitmap = BitmapDecoder.decodeSampled(context, thumbnailPath, width, height);
+        }
+
+        if (bitmap == null && !request.cancelled) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            bitmap = diskCache.get(request.key, options);
+        }
+        if (bitmap == null && !request.cancelled) {
+            bitmap = BitmapDecoder.decodeSampled(context, imageUri, width, height);
+            if (bitmap != null) {
+                diskCache.put(request.key, bitmap);
+            }
+        }
+
+        if (bitmap != null) {
+            memoryCache.put(request.key, bitmap);
+        }
+        return request.cancelled ? null : bitmap;
+    }
+
+    private int[] targetSize(ImageView imageView) {
+        int width = imageView.getWidth();
+        int height = imageView.getHeight();
+
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        if (width <= 0 && params != null && params.width > 0) {
+            width = params.width;
+        }
+        if (height <= 0 && params != null && params.height > 0) {
+            height = params.height;
+        }
+
+        // Not laid out yet and sized by its parent: assume the full screen width
+        int screenWidth = context.getResources().getDisplayMetrics().widthPixels;
+        if (width <= 0) {
+            width = screenWidth;
+        }
+        if (height <= 0) {
+            height = screenWidth;
+        }
+
+        // Bucketed so a row measured before and after layout shares one cache entry
+        return new int[]{bucket(width), bucket(height)};
+    }
+
+    // Nearest power of two
+    static int bucket(int pixels) {
+        int lower = Integer.highestOneBit(pixels);
+        return pixels - lower > lower / 2 ? lower * 2 : lower;
+    }
+
+    private static String cacheKey(String imageUri, int width, int height) {
+        return imageUri + "#" + width + "x" + height;
+    }
+
+    private static class Request {
+        final ImageView imageView;
+        final String key;
+        volatile boolean cancelled;
+        Future<?> future;
+
+        Request(ImageView imageView, String key) {
+            this.imageView = imageView;
+            this.key = key;
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
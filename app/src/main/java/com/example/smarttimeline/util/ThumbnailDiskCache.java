@@ -0,0 +1,146 @@
+package com.example.smarttimeline.util;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class ThumbnailDiskCache {
+
+    // Decoded thumbnails stored as JPEG files named by a hash of their key, evicted least recently
+    // used first once the directory grows past maxBytes
+
+    private static final String TAG = "ThumbnailDiskCache";
+    private static final int JPEG_QUALITY = 85;
+
+    private final File directory;
+    private final long maxBytes;
+    private long approximateSize = -1;
+
+    public ThumbnailDiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public Bitmap get(String key, BitmapFactory.Options options) {
+        File file = fileFor(key);
+        if (!file.exists()) {
+            return null;
+        }
+
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        if (bitmap == null) {
+            // Truncated or corrupt entry; drop it so the thumbnail is regenerated
+            file.delete();
+            return null;
+        }
+
+        file.setLastModified(System.currentTimeMillis());
+        return bitmap;
+    }
+
+    public synchronized void put(String key, Bitmap bitmap) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+
+        File file = fileFor(key);
+        File temp = new File(directory, file.getName() + ".tmp");
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write thumbnail", e);
+            temp.delete();
+            return;
+        }
+
+        // Rename so a reader never sees a half-written file
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+
+        if (approximateSize < 0) {
+            approximateSize = directorySize();
+        } else {
+            approximateSize += file.length();
+        }
+        if (approximateSize > maxBytes) {
+            trimToSize(maxBytes * 3 / 4);
+        }
+    }
+
+    public synchronized void remove(String key) {
+        File file = fileFor(key);
+        if (file.exists()) {
+            long length = file.length();
+            if (file.delete() && approximateSize >= 0) {
+                approximateSize -= length;
+            }
+        }
+    }
+
+    private void trimToSize(long targetBytes) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+
+        for (File file : files) {
+            if (size <= targetBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+        approximateSize = size;
+    }
+
+    private long directorySize() {
+        File[] files = directory.listFiles();
+        long size = 0;
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, hash(key) + ".jpg");
+    }
+
+    static String hash(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.smarttimeline.util;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import com.example.smarttimeline.data.entity.Post;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+public final class ThumbnailGenerator {
+
+    // Downscaled copies of post images written when a post is saved, so displaying a post never has
+    // to open the original photo. Unlike ThumbnailDiskCache these live in files/ and are never evicted;
+    // they are deleted with the last post that references them.
+
+    private static final String TAG = "ThumbnailGenerator";
+    private static final String DIRECTORY = "post_thumbnails";
+    private static final int MAX_SIZE = 1024;
+    private static final int JPEG_QUALITY = 85;
+    // Enough of an existing thumbnail to average for the placeholder color
+    private static final int PLACEHOLDER_SAMPLE_SIZE = 64;
+
+    private ThumbnailGenerator() {
+    }
+
+    // Brings the post's thumbnailPath and placeholderColor in line with its imageUri. Must run off the
+    // main thread. If the image can't be read the post keeps no thumbnail and displays the original.
+    public static void attach(Context context, Post post) {
+        String imageUri = post.getImageUri();
+        if (imageUri == null || imageUri.isEmpty()) {
+            post.setThumbnailPath(null);
+            post.setPlaceholderColor(0);
+            return;
+        }
+
+        File file = fileFor(context, imageUri);
+        if (file.getPath().equals(post.getThumbnailPath()) && file.exists()) {
+            return;
+        }
+
+        // Already on disk for this image, e.g. written for another post or before a restore
+        Bitmap thumbnail = file.exists()
+                ? BitmapDecoder.decodeSampled(context, file.getPath(), PLACEHOLDER_SAMPLE_SIZE, PLACEHOLDER_SAMPLE_SIZE)
+                : null;
+        if (thumbnail == null) {
+            thumbnail = generate(context, imageUri, file);
+        }
+        if (thumbnail == null) {
+            post.setThumbnailPath(null);
+            post.setPlaceholderColor(0);
+            return;
+        }
+
+        post.setThumbnailPath(file.getPath());
+        post.setPlaceholderColor(averageColor(thumbnail));
+        thumbnail.recycle();
+    }
+
+    public static void delete(String thumbnailPath) {
+        if (thumbnailPath != null && !new File(thumbnailPath).delete()) {
+            Log.w(TAG, "Could not delete " + thumbnailPath);
+        }
+    }
+
+    // Removes every thumbnail file not in the given set, e.g. after posts were cleared or replaced
+    public static void retainOnly(Context context, Collection<String> thumbnailPaths) {
+        File[] files = directory(context).listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Set<String> keep = new HashSet<>(thumbnailPaths);
+        for (File file : files) {
+            if (!keep.contains(file.getPath())) {
+                file.delete();
+            }
+        }
+    }
+
+    private static Bitmap generate(Context context, String imageUri, File file) {
+        Bitmap sampled = BitmapDecoder.decodeSampled(context, imageUri, MAX_SIZE, MAX_SIZE);
+        if (sampled == null) {
+            return null;
+        }
+
+        // inSampleSize only halves; finish with an exact scale down to the size limit
+        Bitmap thumbnail = sampled;
+        int longSide = Math.max(sampled.getWidth(), sampled.getHeight());
+        if (longSide > MAX_SIZE) {
+            float scale = (float) MAX_SIZE / longSide;
+            thumbnail = Bitmap.createScaledBitmap(sampled,
+                    Math.max(1, Math.round(sampled.getWidth() * scale)),
+                    Math.max(1, Math.round(sampled.getHeight() * scale)), true);
+            sampled.recycle();
+        }
+
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+            thumbnail.recycle();
+            return null;
+        }
+
+        // Written beside the target and renamed so a reader never sees a half-written file
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write thumbnail for " + imageUri, e);
+            temp.delete();
+            thumbnail.recycle();
+            return null;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            thumbnail.recycle();
+            return null;
+        }
+        return thumbnail;
+    }
+
+    // Shown while the thumbnail decodes; filtering down to one pixel averages the whole image
+    static int averageColor(Bitmap bitmap) {
+        Bitmap pixel = Bitmap.createScaledBitmap(bitmap, 1, 1, true);
+        int color = pixel.getPixel(0, 0);
+        if (pixel != bitmap) {
+            pixel.recycle();
+        }
+        // Never fully transparent, so 0 keeps meaning "no placeholder"
+        return Color.rgb(Color.red(color), Color.green(color), Color.blue(color));
+    }
+
+    // Named by the image, so posts sharing a photo share one file
+    private static File fileFor(Context context, String imageUri) {
+        return new File(directory(context), ThumbnailDiskCache.hash(imageUri) + ".jpg");
+    }
+
+    private static File directory(Context context) {
+        return new File(context.getFilesDir(), DIRECTORY);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.smarttimeline.util;
+
+import java.text.Normalizer;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+public class TrigramIndex {
+
+    // In-memory substring index over post text, location and tags. Each post's fields are folded
+    // (lower case, accents stripped, so "Café" matches "caf") and split into overlapping
+    // three-character grams; a query's grams are intersected to find candidate posts, which are
+    // then checked against the folded text to drop the rare false positive.
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{Mn}+");
+    // Keeps a match from spanning two fields
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private final Map<Long, BitSet> postings = new HashMap<>();
+    private final Map<Integer, String> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Adds the post, or replaces what was indexed for it before
+    public void put(int postId, String text, String location, List<String> tags) {
+        StringBuilder document = new StringBuilder();
+        appendField(document, text);
+        appendField(document, location);
+        if (tags != null) {
+            for (String tag : tags) {
+                appendField(document, tag);
+            }
+        }
+        String folded = document.toString();
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(postId);
+            documents.put(postId, folded);
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                long gram = gram(folded, i);
+                BitSet posts = postings.get(gram);
+                if (posts == null) {
+                    posts = new BitSet();
+                    postings.put(gram, posts);
+                }
+                posts.set(postId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int postId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(postId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of posts where the query appears inside any indexed field, in ascending order
+    public BitSet search(String query) {
+        String folded = fold(query).trim();
+        BitSet matches = new BitSet();
+        if (folded.isEmpty()) {
+            return matches;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (folded.length() < 3) {
+                // Too short to form a gram; scan the folded documents instead of the posts
+                for (Map.Entry<Integer, String> entry : documents.entrySet()) {
+                    if (entry.getValue().contains(folded)) {
+                        matches.set(entry.getKey());
+                    }
+                }
+                return matches;
+            }
+
+            BitSet candidates = null;
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                BitSet posts = postings.get(gram(folded, i));
+                if (posts == null) {
+                    return matches;
+                }
+                if (candidates == null) {
+                    candidates = (BitSet) posts.clone();
+                } else {
+                    candidates.and(posts);
+                }
+                if (candidates.isEmpty()) {
+                    return matches;
+                }
+            }
+
+            // All grams present does not guarantee they are adjacent
+            for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                if (documents.get(id).contains(folded)) {
+                    matches.set(id);
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(int postId) {
+        String previous = documents.remove(postId);
+        if (previous == null) {
+            return;
+        }
+        for (int i = 0; i + 3 <= previous.length(); i++) {
+            long gram = gram(previous, i);
+            BitSet posts = postings.get(gram);
+            if (posts != null) {
+                posts.clear(postId);
+                if (posts.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static void appendField(StringBuilder document, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (document.length() > 0) {
+            document.append(FIELD_SEPARATOR);
+        }
+        document.append(fold(value));
+    }
+
+    private static long gram(String folded, int start) {
+        return ((long) folded.charAt(start) << 32) | ((long) folded.charAt(start + 1) << 16) | folded.charAt(start + 2);
+    }
+
+    // Lower case with diacritics removed: "Crème Brûlée" -> "creme brulee"
+    public static String fold(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -16,7 +16,7 @@ public class AddPostViewModel extends AndroidViewModel {
 
     public AddPostViewModel(@NonNull Application application) {
         super(application);
-        repository = new PostRepository(application);
+        repository = PostRepository.getInstance(application);
         postInserted = new MutableLiveData<>();
     }
 
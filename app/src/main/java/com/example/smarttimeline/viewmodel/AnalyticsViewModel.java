@@ -5,14 +5,14 @@ import android.app.Application;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MediatorLiveData;
-import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
 import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.data.model.DayCount;
+import com.example.smarttimeline.data.model.MoodCount;
+import com.example.smarttimeline.data.model.TagCount;
 import com.example.smarttimeline.data.repository.PostRepository;
 
-import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,87 +20,52 @@ import java.util.Map;
 public class AnalyticsViewModel extends AndroidViewModel {
 
     private final PostRepository repository;
-    private final LiveData<List<Post>> allPosts;
-    private final MediatorLiveData<Map<String, Integer>> moodDistribution;
-    private final MediatorLiveData<Map<String, Integer>> postsPerDay;
-    private final MediatorLiveData<Map<String, Integer>> tagsDistribution;
+    private final LiveData<Map<String, Integer>> moodDistribution;
+    private final LiveData<Map<String, Integer>> postsPerDay;
+    private final LiveData<Map<String, Integer>> tagsDistribution;
 
     public AnalyticsViewModel(@NonNull Application application) {
         super(application);
-        repository = new PostRepository(application);
-        allPosts = repository.getAllPosts();
+        repository = PostRepository.getInstance(application);
 
-        moodDistribution = new MediatorLiveData<>();
-        postsPerDay = new MediatorLiveData<>();
-        tagsDistribution = new MediatorLiveData<>();
-
-        setupMoodDistribution();
-        setupPostsPerDay();
-        setupTagsDistribution();
+        // Counts are grouped in SQLite; only one row per bucket is mapped here
+        moodDistribution = Transformations.map(repository.getMoodCounts(), AnalyticsViewModel::toMoodMap);
+        postsPerDay = Transformations.map(repository.getDailyPostCounts(), AnalyticsViewModel::toDayMap);
+        tagsDistribution = Transformations.map(repository.getTagCounts(), AnalyticsViewModel::toTagMap);
     }
 
-    private void setupMoodDistribution() {
-        moodDistribution.addSource(allPosts, posts -> {
-            Map<String, Integer> distribution = new HashMap<>();
-
-            if (posts != null) {
-                for (Post post : posts) {
-                    String mood = post.getMood();
-                    if (mood != null && !mood.isEmpty()) {
-                        distribution.put(mood, distribution.getOrDefault(mood, 0) + 1);
-                    }
-                }
+    private static Map<String, Integer> toMoodMap(List<MoodCount> counts) {
+        Map<String, Integer> distribution = new HashMap<>();
+        if (counts != null) {
+            for (MoodCount moodCount : counts) {
+                distribution.put(moodCount.mood, moodCount.count);
             }
-
-            moodDistribution.setValue(distribution);
-        });
+        }
+        return distribution;
     }
 
-    private void setupPostsPerDay() {
-        postsPerDay.addSource(allPosts, posts -> {
-            Map<String, Integer> dailyPosts = new HashMap<>();
-
-            if (posts != null) {
-                Calendar calendar = Calendar.getInstance();
-
-                for (Post post : posts) {
-                    calendar.setTimeInMillis(post.getTimestamp());
-                    String dateKey = String.format("%04d-%02d-%02d",
-                            calendar.get(Calendar.YEAR),
-                            calendar.get(Calendar.MONTH) + 1,
-                            calendar.get(Calendar.DAY_OF_MONTH));
-
-                    dailyPosts.put(dateKey, dailyPosts.getOrDefault(dateKey, 0) + 1);
-                }
+    private static Map<String, Integer> toDayMap(List<DayCount> counts) {
+        Map<String, Integer> dailyPosts = new HashMap<>();
+        if (counts != null) {
+            for (DayCount dayCount : counts) {
+                dailyPosts.put(dayCount.day, dayCount.count);
             }
-
-            postsPerDay.setValue(dailyPosts);
-        });
+        }
+        return dailyPosts;
     }
 
-    private void setupTagsDistribution() {
-        tagsDistribution.addSource(allPosts, posts -> {
-            Map<String, Integer> tagCounts = new HashMap<>();
-
-            if (posts != null) {
-                for (Post post : posts) {
-                    List<String> tags = post.getTags();
-                    if (tags != null) {
-                        for (String tag : tags) {
-                            if (tag != null && !tag.isEmpty()) {
-                                tagCounts.put(tag, tagCounts.getOrDefault(tag, 0) + 1);
-                            }
-                        }
-                    }
-                }
+    private static Map<String, Integer> toTagMap(List<TagCount> counts) {
+        Map<String, Integer> tagCounts = new HashMap<>();
+        if (counts != null) {
+            for (TagCount tagCount : counts) {
+                tagCounts.put(tagCount.tag, tagCount.count);
             }
-
-            tagsDistribution.setValue(tagCounts);
-        });
+        }
+        return tagCounts;
     }
 
     public LiveData<List<Post>> getAllPosts() {
-        return allPosts;
+        return repository.getAllPosts();
     }
 
     public LiveData<Map<String, Integer>> getMoodDistribution() {
@@ -122,4 +87,4 @@ public class AnalyticsViewModel extends AndroidViewModel {
     public LiveData<Integer> getPostCount() {
         return repository.getPostCount();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package com.example.smarttimeline.viewmodel;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
@@ -18,6 +21,9 @@ import java.util.List;
 
 public class ChatViewModel extends AndroidViewModel {
 
+    // Streamed text is republished at most this often; the list copy and diff are not free
+    private static final long STREAM_UPDATE_INTERVAL_MS = 100;
+
     private final AIChatService chatService;
     private final AIRepository aiRepository;
     private final PostRepository postRepository;
@@ -34,7 +40,7 @@ public class ChatViewModel extends AndroidViewModel {
 
         chatService = new AIChatService();
         aiRepository = new AIRepository(application);
-        postRepository = new PostRepository(application);
+        postRepository = PostRepository.getInstance(application);
 
         chatMessages = new MutableLiveData<>();
         isLoading = new MutableLiveData<>(false);
@@ -82,53 +88,120 @@ public class ChatViewModel extends AndroidViewModel {
 
         // Add user message
         ChatMessage userMsg = ChatMessage.createUserMessage(userMessage.trim());
-        messageList.add(userMsg);
-        chatMessages.setValue(new ArrayList<>(messageList));
+        addMessage(userMsg);
 
-        // Add typing indicator
+        // Add typing indicator; it turns into the reply once the first words arrive
         ChatMessage typingMsg = ChatMessage.createTypingIndicator();
-        messageList.add(typingMsg);
-        chatMessages.setValue(new ArrayList<>(messageList));
+        addMessage(typingMsg);
 
         isLoading.setValue(true);
 
         // Get user posts for context
         List<Post> posts = userPosts.getValue();
 
-        // Send to AI
-        chatService.sendMessage(userMessage, posts, new AIChatService.ChatCallback() {
-            @Override
-            public void onResponse(String response) {
-                // Remove typing indicator
-                messageList.remove(messageList.size() - 1);
+        // Stream the reply so it is read while the model is still writing it
+        chatService.sendMessageStreaming(userMessage, posts, new AIChatService.StreamCallback() {
+            // Callbacks come from the chat service's thread and the trailing update from the main
+            // thread; both hold the callback's lock
+            private final StringBuilder streamed = new StringBuilder();
+            private final Handler mainHandler = new Handler(Looper.getMainLooper());
+            private final Runnable trailingUpdate = this::showStreamed;
+            private ChatMessage shown = typingMsg;
+            private long lastUpdate;
+            private boolean updateScheduled;
+            private boolean finished;
 
-                // Add AI response
-                ChatMessage aiMsg = ChatMessage.createAIMessage(response);
-                messageList.add(aiMsg);
-                chatMessages.postValue(new ArrayList<>(messageList));
+            @Override
+            public synchronized void onPartial(String delta) {
+                streamed.append(delta);
+
+                // The first words are shown at once, later ones at most every STREAM_UPDATE_INTERVAL_MS.
+                // Text held back is shown by a trailing update, so a pause in the stream never hides it.
+                long wait = lastUpdate == 0 ? 0 : lastUpdate + STREAM_UPDATE_INTERVAL_MS - SystemClock.uptimeMillis();
+                if (wait > 0) {
+                    if (!updateScheduled) {
+                        updateScheduled = true;
+                        mainHandler.postDelayed(trailingUpdate, wait);
+                    }
+                    return;
+                }
+                showStreamed();
+            }
 
+            @Override
+            public synchronized void onResponse(String response) {
+                finish();
+                showReply(response);
                 isLoading.postValue(false);
             }
 
             @Override
-            public void onError(String error) {
-                // Remove typing indicator
-                messageList.remove(messageList.size() - 1);
-                chatMessages.postValue(new ArrayList<>(messageList));
+            public synchronized void onError(String error) {
+                finish();
+                // Remove typing indicator or partial reply
+                removeMessage(shown);
 
                 errorMessage.postValue(error);
                 isLoading.postValue(false);
             }
+
+            private synchronized void showStreamed() {
+                if (updateScheduled) {
+                    updateScheduled = false;
+                    mainHandler.removeCallbacks(trailingUpdate);
+                }
+                if (finished) {
+                    return;
+                }
+                lastUpdate = SystemClock.uptimeMillis();
+                showReply(streamed.toString());
+            }
+
+            private void finish() {
+                finished = true;
+                mainHandler.removeCallbacks(trailingUpdate);
+            }
+
+            private void showReply(String text) {
+                ChatMessage next = typingMsg.withMessage(text);
+                if (replaceMessage(shown, next)) {
+                    shown = next;
+                }
+            }
         });
     }
 
+    // The list is changed from the main thread and from the chat service's thread. Every change is
+    // published with postValue, so a streamed update cannot land after a newer list set directly.
+
+    private synchronized void addMessage(ChatMessage message) {
+        messageList.add(message);
+        chatMessages.postValue(new ArrayList<>(messageList));
+    }
+
+    // Each update publishes a new list so the adapter can diff it; a message that is gone because
+    // the chat was cleared meanwhile is left gone
+    private synchronized boolean replaceMessage(ChatMessage current, ChatMessage replacement) {
+        int index = messageList.indexOf(current);
+        if (index < 0) {
+            return false;
+        }
+        messageList.set(index, replacement);
+        chatMessages.postValue(new ArrayList<>(messageList));
+        return true;
+    }
+
+    private synchronized void removeMessage(ChatMessage message) {
+        if (messageList.remove(message)) {
+            chatMessages.postValue(new ArrayList<>(messageList));
+        }
+    }
+
     private void addSystemMessage(String message) {
-        ChatMessage systemMsg = new ChatMessage(message, ChatMessage.MessageType.SYSTEM);
-        messageList.add(systemMsg);
-        chatMessages.setValue(new ArrayList<>(messageList));
+        addMessage(new ChatMessage(message, ChatMessage.MessageType.SYSTEM));
     }
 
-    public void clearChat() {
+    public synchronized void clearChat() {
         messageList.clear();
         chatService.clearHistory();
         addSystemMessage("Chat cleared. How can I help you?");
@@ -21,7 +21,7 @@ public class EditPostViewModel extends AndroidViewModel {
 
     public EditPostViewModel(@NonNull Application application) {
         super(application);
-        repository = new PostRepository(application);
+        repository = PostRepository.getInstance(application);
         postIdLiveData = new MutableLiveData<>();
         updateStatus = new MutableLiveData<>();
         hasResetStatus = false;
@@ -6,12 +6,16 @@ import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 
 import com.example.smarttimeline.data.repository.ExportImportRepository;
+import com.example.smarttimeline.util.BackupFormat;
 
 public class ExportImportViewModel extends AndroidViewModel {
 
     private final ExportImportRepository repository;
+    private final MutableLiveData<BackupFormat> backupFormat = new MutableLiveData<>(BackupFormat.JSON);
+    private final MutableLiveData<Boolean> incrementalExport = new MutableLiveData<>(false);
 
     public ExportImportViewModel(@NonNull Application application) {
         super(application);
@@ -26,8 +30,32 @@ public class ExportImportViewModel extends AndroidViewModel {
         return repository.getOperationInProgress();
     }
 
+    public LiveData<BackupFormat> getBackupFormat() {
+        return backupFormat;
+    }
+
+    public void setBackupFormat(BackupFormat format) {
+        backupFormat.setValue(format);
+    }
+
+    public LiveData<Boolean> getIncrementalExport() {
+        return incrementalExport;
+    }
+
+    // Incremental exports hold only what changed since the last backup and are always JSON
+    public void setIncrementalExport(boolean incremental) {
+        incrementalExport.setValue(incremental);
+        if (incremental) {
+            backupFormat.setValue(BackupFormat.JSON);
+        }
+    }
+
+    public boolean hasPreviousBackup() {
+        return repository.getLastBackupTime() > 0;
+    }
+
     public void exportData(Uri destinationUri) {
-        repository.exportData(destinationUri);
+        repository.exportData(destinationUri, currentBackupFormat(), isIncrementalExport());
     }
 
     public void importData(Uri sourceUri, boolean replaceExisting) {
@@ -35,6 +63,19 @@ public class ExportImportViewModel extends AndroidViewModel {
     }
 
     public String generateExportFileName() {
-        return repository.generateExportFileName();
+        return repository.generateExportFileName(currentBackupFormat(), isIncrementalExport());
+    }
+
+    public String getExportMimeType() {
+        return currentBackupFormat().getMimeType();
+    }
+
+    private boolean isIncrementalExport() {
+        return Boolean.TRUE.equals(incrementalExport.getValue());
+    }
+
+    private BackupFormat currentBackupFormat() {
+        BackupFormat format = backupFormat.getValue();
+        return format != null ? format : BackupFormat.JSON;
     }
 }
\ No newline at end of file
@@ -20,7 +20,7 @@ public class PostDetailViewModel extends AndroidViewModel {
 
     public PostDetailViewModel(@NonNull Application application) {
         super(application);
-        repository = new PostRepository(application);
+        repository = PostRepository.getInstance(application);
         postIdLiveData = new MutableLiveData<>();
         deleteStatus = new MutableLiveData<>();
 
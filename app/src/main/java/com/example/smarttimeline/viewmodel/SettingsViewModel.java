@@ -16,12 +16,14 @@ public class SettingsViewModel extends AndroidViewModel {
     private final PostRepository repository;
     private final SharedPreferences sharedPreferences;
     private final MutableLiveData<Boolean> dataCleared;
+    private final MutableLiveData<Boolean> statsRebuilt;
 
     public SettingsViewModel(@NonNull Application application) {
         super(application);
-        repository = new PostRepository(application);
+        repository = PostRepository.getInstance(application);
         sharedPreferences = application.getSharedPreferences(Constants.PREFS_NAME, Context.MODE_PRIVATE);
         dataCleared = new MutableLiveData<>();
+        statsRebuilt = new MutableLiveData<>();
     }
 
     public MutableLiveData<Boolean> getDataCleared() {
@@ -37,6 +39,19 @@ public class SettingsViewModel extends AndroidViewModel {
         dataCleared.setValue(false);
     }
 
+    public MutableLiveData<Boolean> getStatsRebuilt() {
+        return statsRebuilt;
+    }
+
+    // Analytics counts are maintained incrementally; this recomputes them if they ever drift
+    public void rebuildAnalytics() {
+        repository.rebuildStats(() -> statsRebuilt.postValue(true));
+    }
+
+    public void resetStatsRebuiltState() {
+        statsRebuilt.setValue(false);
+    }
+
     public boolean areNotificationsEnabled() {
         return sharedPreferences.getBoolean(Constants.PREFS_NOTIFICATIONS_ENABLED, true);
     }
@@ -5,12 +5,12 @@ import android.app.Application;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.Observer;
 
 import com.example.smarttimeline.ai.AIRepository;
 import com.example.smarttimeline.data.entity.Post;
 import com.example.smarttimeline.data.model.AISummary;
 import com.example.smarttimeline.data.repository.PostRepository;
+import com.example.smarttimeline.util.DateUtils;
 
 import java.util.List;
 
@@ -21,7 +21,7 @@ public class SummaryViewModel extends AndroidViewModel {
 
     public SummaryViewModel(@NonNull Application application) {
         super(application);
-        postRepository = new PostRepository(application);
+        postRepository = PostRepository.getInstance(application);
         aiRepository = new AIRepository(application);
     }
 
@@ -34,35 +34,26 @@ public class SummaryViewModel extends AndroidViewModel {
     }
 
     public void generateSummaryForDateRange(long startDate, long endDate, String period) {
-        LiveData<List<Post>> postsLiveData = postRepository.getPostsByDateRange(startDate, endDate);
-
-        postsLiveData.observeForever(new Observer<List<Post>>() {
-            @Override
-            public void onChanged(List<Post> posts) {
-                if (posts != null) {
-                    aiRepository.generateAISummary(posts, period);
-                }
-                postsLiveData.removeObserver(this);
-            }
-        });
+        aiRepository.generateAISummary(startDate, endDate, period);
+    }
+
+    // Ranges cover whole days, so asking again later the same day finds the cached summary
+    private void generateSummaryForLastDays(int days, String period) {
+        long now = System.currentTimeMillis();
+        long startDate = DateUtils.getStartOfDay(DateUtils.getDaysAgo(days - 1));
+        generateSummaryForDateRange(startDate, DateUtils.getEndOfDay(now), period);
     }
 
     public void generateWeeklySummary() {
-        long endDate = System.currentTimeMillis();
-        long startDate = endDate - (7L * 24 * 60 * 60 * 1000);
-        generateSummaryForDateRange(startDate, endDate, "Weekly");
+        generateSummaryForLastDays(7, "Weekly");
     }
 
     public void generateMonthlySummary() {
-        long endDate = System.currentTimeMillis();
-        long startDate = endDate - (30L * 24 * 60 * 60 * 1000);
-        generateSummaryForDateRange(startDate, endDate, "Monthly");
+        generateSummaryForLastDays(30, "Monthly");
     }
 
     public void generateYearlySummary() {
-        long endDate = System.currentTimeMillis();
-        long startDate = endDate - (365L * 24 * 60 * 60 * 1000);
-        generateSummaryForDateRange(startDate, endDate, "Yearly");
+        generateSummaryForLastDays(365, "Yearly");
     }
 
     public LiveData<List<Post>> getAllPosts() {
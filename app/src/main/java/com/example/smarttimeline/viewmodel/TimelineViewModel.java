@@ -1,33 +1,145 @@
 package com.example.smarttimeline.viewmodel;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.PagingLiveData;
 
 import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.data.model.PostFilter;
 import com.example.smarttimeline.data.repository.PostRepository;
+import com.example.smarttimeline.ui.timeline.PostDisplayModel;
+import com.example.smarttimeline.util.AppExecutors;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
 
 public class TimelineViewModel extends AndroidViewModel {
 
+    // Typing pauses shorter than this coalesce into a single search
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+
     private final PostRepository repository;
     private final LiveData<List<Post>> allPosts;
+    private final LiveData<PagingData<PostDisplayModel>> pagedPosts;
     private final LiveData<Integer> postCount;
+    private final MutableLiveData<PostFilter> filter;
+    private final MediatorLiveData<List<PostDisplayModel>> filteredPosts;
+
+    // Display models are built on the compute pool, never while binding rows
+    private final PostDisplayModel.Factory displayModelFactory;
+    private final Executor displayExecutor;
+    private volatile int filterGeneration;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingFilter;
 
     public TimelineViewModel(@NonNull Application application) {
         super(application);
-        repository = new PostRepository(application);
+        repository = PostRepository.getInstance(application);
         allPosts = repository.getAllPosts();
+        displayModelFactory = new PostDisplayModel.Factory(application);
+        displayExecutor = AppExecutors.getInstance().compute();
+
+        // Mapped before caching so pages kept across configuration changes are already converted
+        pagedPosts = PagingLiveData.cachedIn(
+                Transformations.map(repository.getPagedPosts(),
+                        page -> PagingDataTransforms.map(page, displayExecutor, displayModelFactory::create)),
+                this);
         postCount = repository.getPostCount();
+
+        filter = new MutableLiveData<>();
+        // Every filter combination is a single query evaluated by SQLite
+        LiveData<List<Post>> matchingPosts = Transformations.switchMap(filter, currentFilter ->
+                currentFilter.isEmpty()
+                        ? new MutableLiveData<>(Collections.emptyList())
+                        : repository.filterPosts(currentFilter));
+
+        filteredPosts = new MediatorLiveData<>();
+        filteredPosts.addSource(matchingPosts, posts -> {
+            int generation = ++filterGeneration;
+            displayExecutor.execute(() -> {
+                List<PostDisplayModel> models = new ArrayList<>(posts.size());
+                for (Post post : posts) {
+                    models.add(displayModelFactory.create(post));
+                }
+                // The pool may finish conversions out of order; only the newest result is shown
+                if (generation == filterGeneration) {
+                    filteredPosts.postValue(models);
+                }
+            });
+        });
+    }
+
+    // Text queries are debounced so each keystroke does not start a search; immediate applies the
+    // filter now, e.g. on submit or when a non-text criterion changes.
+    public void setFilter(PostFilter postFilter, boolean immediate) {
+        PostFilter next = new PostFilter(postFilter);
+        cancelPendingFilter();
+
+        PostFilter current = filter.getValue();
+        boolean queryChanged = current == null || !Objects.equals(current.getQuery(), next.getQuery());
+        if (immediate || !next.hasQuery() || !queryChanged) {
+            applyFilter(next);
+            return;
+        }
+        pendingFilter = () -> {
+            pendingFilter = null;
+            applyFilter(next);
+        };
+        mainHandler.postDelayed(pendingFilter, SEARCH_DEBOUNCE_MS);
+    }
+
+    // Back to the unfiltered timeline; stops any pending or running search
+    public void clearFilter() {
+        cancelPendingFilter();
+        applyFilter(new PostFilter());
+    }
+
+    private void applyFilter(PostFilter next) {
+        // An unchanged filter would only repeat the same query
+        if (!next.equals(filter.getValue())) {
+            filter.setValue(next);
+        }
+    }
+
+    private void cancelPendingFilter() {
+        if (pendingFilter != null) {
+            mainHandler.removeCallbacks(pendingFilter);
+            pendingFilter = null;
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        cancelPendingFilter();
+    }
+
+    public LiveData<List<PostDisplayModel>> getFilteredPosts() {
+        return filteredPosts;
     }
 
     public LiveData<List<Post>> getAllPosts() {
         return allPosts;
     }
 
+    public LiveData<PagingData<PostDisplayModel>> getPagedPosts() {
+        return pagedPosts;
+    }
+
     public LiveData<Integer> getPostCount() {
         return postCount;
     }
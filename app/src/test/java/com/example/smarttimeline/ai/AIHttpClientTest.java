@@ -0,0 +1,161 @@
+package com.example.smarttimeline.ai;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import static org.junit.Assert.*;
+
+public class AIHttpClientTest {
+
+    private static final String COMPLETION = "{\"choices\":[{\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"  A calm week with long walks.  \"}}]}";
+
+    private MockWebServer server;
+    private AIHttpClient client;
+
+    // A local HTTPS stand-in for the API, so connections are reused the way they are over TLS
+    @Before
+    public void setUp() throws Exception {
+        String host = InetAddress.getByName("localhost").getCanonicalHostName();
+        HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(host)
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build();
+        HandshakeCertificates clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+
+        server = new MockWebServer();
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        server.start();
+
+        client = new AIHttpClient(AIHttpClient.newClient().newBuilder()
+                .sslSocketFactory(clientCertificates.sslSocketFactory(), clientCertificates.trustManager())
+                .build(),
+                server.url("/openai/v1/chat/completions").toString());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void complete_returnsTrimmedContentAndSendsKey() throws Exception {
+        server.enqueue(new MockResponse().setBody(COMPLETION));
+
+        assertEquals("A calm week with long walks.", client.complete("test-key", requestBody()));
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("Bearer test-key", request.getHeader("Authorization"));
+        assertTrue(request.getHeader("Content-Type").startsWith("application/json"));
+        assertEquals(requestBody().toString(), request.getBody().readUtf8());
+    }
+
+    @Test
+    public void complete_reusesTheConnection() throws Exception {
+        server.enqueue(new MockResponse().setBody(COMPLETION));
+        server.enqueue(new MockResponse().setBody(COMPLETION));
+
+        client.complete("test-key", requestBody());
+        client.complete("test-key", requestBody());
+
+        // Sequence numbers count requests on one connection
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void complete_inflatesGzipResponses() throws Exception {
+        Buffer gzipped = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(gzipped))) {
+            sink.writeUtf8(COMPLETION);
+        }
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(gzipped));
+
+        assertEquals("A calm week with long walks.", client.complete("test-key", requestBody()));
+        assertEquals("gzip", server.takeRequest().getHeader("Accept-Encoding"));
+    }
+
+    @Test
+    public void complete_reportsErrorBody() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(401).setBody("{\"error\":\"invalid key\"}\n"));
+
+        try {
+            client.complete("bad-key", requestBody());
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertEquals("API call failed with code 401: {\"error\":\"invalid key\"}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void streamCompletion_deliversDeltasAsTheyArrive() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setChunkedBody(": keep-alive\n\n"
+                        + event("{\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}")
+                        + event("{\"choices\":[{\"delta\":{\"content\":\"A calm\"}}]}")
+                        + event("{\"choices\":[{\"delta\":{\"content\":\" week.\"}}]}")
+                        + event("{\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}]}")
+                        + event("[DONE]"), 16));
+
+        List<String> deltas = new ArrayList<>();
+        String text = client.streamCompletion("test-key", requestBody(), deltas::add);
+
+        assertEquals("A calm week.", text);
+        assertEquals(Arrays.asList("A calm", " week."), deltas);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("text/event-stream", request.getHeader("Accept"));
+        assertTrue(new JSONObject(request.getBody().readUtf8()).getBoolean("stream"));
+    }
+
+    @Test
+    public void readEventStream_joinsMultiLineDataAndReportsErrors() throws Exception {
+        Buffer multiLine = new Buffer().writeUtf8("data: {\"choices\":[{\"delta\":\n"
+                + "data: {\"content\":\"Hi\"}}]}\n\n");
+        assertEquals("Hi", AIHttpClient.readEventStream(multiLine, delta -> { }));
+
+        Buffer failed = new Buffer().writeUtf8("data: {\"error\":{\"message\":\"overloaded\"}}\n\n");
+        try {
+            AIHttpClient.readEventStream(failed, delta -> { });
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("overloaded"));
+        }
+    }
+
+    private static String event(String data) {
+        return "data: " + data + "\n\n";
+    }
+
+    private static JSONObject requestBody() throws Exception {
+        return new JSONObject()
+                .put("model", "llama-3.3-70b-versatile")
+                .put("max_tokens", 500);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.smarttimeline.ai;
+
+import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.util.DateUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PromptPackerTest {
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private static final long START = 1_700_000_000_000L;
+    private static final String[] MOODS = {"Happy", "Calm", "Tired", "Anxious"};
+    private static final String[] WORDS = {"walked", "the", "dog", "along", "river", "work", "was", "busy",
+            "dinner", "with", "friends", "read", "a", "book", "rain", "all", "day", "long", "meeting"};
+
+    @Test
+    public void build_keepsEverythingWhenItFits() {
+        List<Post> posts = Arrays.asList(post(0, "First walk of the year.", "Happy"),
+                post(1, "Quiet evening at home.", "Calm"));
+        PromptPacker packer = new PromptPacker(500)
+                .instructions("Summarize.\n")
+                .stat("Total posts: 2")
+                .posts("Posts:\n", posts, PromptPacker.FORMAT_MOOD);
+
+        String prompt = packer.build();
+
+        assertEquals("Summarize.\nTotal posts: 2\n\nPosts:\n"
+                + "- [Happy] First walk of the year.\n"
+                + "- [Calm] Quiet evening at home.\n", prompt);
+        assertEquals(0, packer.getOmittedPosts());
+        assertEquals(0, packer.getTrimmedPosts());
+    }
+
+    @Test
+    public void build_staysWithinBudgetAndKeepsInstructionsWhole() {
+        List<Post> posts = posts(300, new Random(5));
+        String instructions = "Analyze the following posts and provide a concise, insightful summary.\n\n";
+        PromptPacker packer = new PromptPacker(1000)
+                .instructions(instructions)
+                .posts("Posts:\n", posts, PromptPacker.FORMAT_DATE | PromptPacker.FORMAT_MOOD)
+                .closing("\nProvide a summary in 3-5 sentences.");
+
+        String prompt = packer.build();
+
+        assertTrue(PromptPacker.estimateTokens(prompt) <= 1000);
+        assertTrue(prompt.startsWith(instructions));
+        assertTrue(prompt.endsWith("\nProvide a summary in 3-5 sentences."));
+        assertTrue(packer.getOmittedPosts() > 0);
+        assertTrue(prompt.contains("... and " + packer.getOmittedPosts() + " more posts not shown\n"));
+    }
+
+    @Test
+    public void build_coversTheWholePeriodInOrder() {
+        List<Post> posts = posts(365, new Random(9));
+        PromptPacker packer = new PromptPacker(800).posts("", posts, PromptPacker.FORMAT_DATE);
+
+        String prompt = packer.build();
+
+        // Posts from the first and the last month make it in, and lines stay oldest first
+        List<Post> chosen = chosen(prompt, posts);
+        assertTrue(chosen.size() < posts.size());
+        assertTrue(dayOf(chosen.get(0)) < 31);
+        assertTrue(dayOf(chosen.get(chosen.size() - 1)) > 334);
+
+        long previous = 0;
+        for (Post post : chosen) {
+            assertTrue(post.getTimestamp() >= previous);
+            previous = post.getTimestamp();
+        }
+    }
+
+    @Test
+    public void build_trimsLongPostsMoreThanShortOnes() {
+        String shortText = "Coffee with Sam.";
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            longText.append(WORDS[i % WORDS.length]).append(' ');
+        }
+        List<Post> posts = Arrays.asList(post(0, shortText, null), post(1, longText.toString(), null));
+        PromptPacker packer = new PromptPacker(120).posts("", posts, 0);
+
+        String prompt = packer.build();
+
+        assertTrue(prompt.contains("- " + shortText + "\n"));
+        assertTrue(prompt.contains("…\n"));
+        assertEquals(1, packer.getTrimmedPosts());
+        assertEquals(0, packer.getOmittedPosts());
+        assertTrue(PromptPacker.estimateTokens(prompt) <= 120);
+    }
+
+    @Test
+    public void build_prefersPostsWithRareTags() {
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Post post = post(0, "Ordinary day at the office " + i, null);
+            post.setTags(Collections.singletonList("work"));
+            posts.add(post);
+        }
+        Post rare = post(0, "Ordinary day at the office x", null);
+        rare.setTags(Collections.singletonList("wedding"));
+        posts.add(rare);
+
+        String prompt = new PromptPacker(60).posts("", posts, PromptPacker.FORMAT_TAGS).build();
+
+        assertTrue(prompt.contains("wedding"));
+    }
+
+    @Test
+    public void estimateTokens_countsWideCharactersSeparately() {
+        assertEquals(0, PromptPacker.estimateTokens(""));
+        assertEquals(3, PromptPacker.estimateTokens("A calm week."));
+        assertEquals(5, PromptPacker.estimateTokens("今日は晴れ"));
+    }
+
+    // Posts whose date appears in the prompt, in the order they appear
+    private static List<Post> chosen(String prompt, List<Post> posts) {
+        List<Post> chosen = new ArrayList<>();
+        for (String line : prompt.split("\n")) {
+            for (Post post : posts) {
+                if (line.startsWith("- [" + DateUtils.formatDate(post.getTimestamp()) + "]")) {
+                    chosen.add(post);
+                    break;
+                }
+            }
+        }
+        return chosen;
+    }
+
+    private static long dayOf(Post post) {
+        return (post.getTimestamp() - START) / DAY_MS;
+    }
+
+    // One post a day with 10 to 200 words
+    private static List<Post> posts(int count, Random random) {
+        List<Post> posts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int words = 10 + random.nextInt(190);
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            posts.add(post(i, text.toString().trim(), MOODS[random.nextInt(MOODS.length)]));
+        }
+        return posts;
+    }
+
+    private static Post post(int day, String text, String mood) {
+        Post post = new Post();
+        post.setTimestamp(START + day * DAY_MS);
+        post.setText(text);
+        post.setMood(mood);
+        return post;
+    }
+}
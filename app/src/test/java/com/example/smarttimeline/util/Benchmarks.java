@@ -0,0 +1,113 @@
+package com.example.smarttimeline.util;
+
+import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.ui.timeline.SearchFilterHelper;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assume.assumeTrue;
+
+public class Benchmarks {
+
+    // Timings of the optimized paths against what they replaced, printed rather than asserted; the
+    // unit tests check the results. Skipped unless asked for:
+    // ./gradlew testDebugUnitTest --tests '*.Benchmarks' -Pbenchmarks
+
+    private static final int ROUNDS = 20;
+    private static final int FORMATS_PER_THREAD = 50_000;
+
+    @BeforeClass
+    public static void onlyWhenAsked() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+    }
+
+    @Test
+    public void trigramIndex_againstLinearScan() throws Exception {
+        List<Post> posts = TrigramIndexTest.generatePosts(20_000, new Random(42));
+
+        TrigramIndex index = new TrigramIndex();
+        long buildNanos = once(() -> {
+            for (Post post : posts) {
+                index.put(post.getId(), post.getText(), post.getLocation(), post.getTags());
+            }
+        });
+        long linearNanos = time(() -> {
+            for (String query : TrigramIndexTest.QUERIES) {
+                SearchFilterHelper.searchByText(posts, query);
+            }
+        });
+        long indexNanos = time(() -> {
+            for (String query : TrigramIndexTest.QUERIES) {
+                index.search(query);
+            }
+        });
+
+        int queries = TrigramIndexTest.QUERIES.length;
+        report("TrigramIndex: " + posts.size() + " posts indexed in " + buildNanos / 1_000_000 + " ms",
+                "linear scan: " + linearNanos / queries / 1_000 + " us/query",
+                "trigram index: " + indexNanos / queries / 1_000 + " us/query");
+    }
+
+    @Test
+    public void dateUtils_againstSynchronizedSimpleDateFormat() throws Exception {
+        long[] timestamps = DateUtilsTest.timestamps(FORMATS_PER_THREAD, new Random(3));
+        SimpleDateFormat shared = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
+
+        // The shared, locked formatter the app used before, with every thread formatting at once
+        long lockedNanos = time(() -> DateUtilsTest.runConcurrently(() -> {
+            int length = 0;
+            for (long timestamp : timestamps) {
+                synchronized (shared) {
+                    length += shared.format(new Date(timestamp)).length();
+                }
+            }
+            return length;
+        }));
+        long cachedNanos = time(() -> DateUtilsTest.runConcurrently(() -> {
+            int length = 0;
+            for (long timestamp : timestamps) {
+                length += DateUtils.formatDateTime(timestamp).length();
+            }
+            return length;
+        }));
+
+        long formats = (long) DateUtilsTest.THREADS * FORMATS_PER_THREAD;
+        report("DateUtils: " + DateUtilsTest.THREADS + " threads x " + FORMATS_PER_THREAD + " formats",
+                "synchronized SimpleDateFormat: " + formats * 1_000_000 / lockedNanos + " formats/ms",
+                "DateUtils.formatDateTime: " + formats * 1_000_000 / cachedNanos + " formats/ms");
+    }
+
+    interface Work {
+        void run() throws Exception;
+    }
+
+    // Runs the work once to warm up, then ROUNDS times; nanoseconds per round
+    private static long time(Work work) throws Exception {
+        work.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            work.run();
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    private static long once(Work work) throws Exception {
+        long start = System.nanoTime();
+        work.run();
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String title, String... timings) {
+        System.out.println(title);
+        for (String timing : timings) {
+            System.out.println("  " + timing);
+        }
+    }
+}
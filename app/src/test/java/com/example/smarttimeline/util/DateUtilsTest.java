@@ -0,0 +1,109 @@
+package com.example.smarttimeline.util;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DateUtilsTest {
+
+    static final int THREADS = 4;
+    // About ten years of posts, a few per day
+    private static final long SPAN_MS = 10L * 365 * CachedDateFormat.DAY_MS;
+    private static final long START = 1_500_000_000_000L;
+
+    @Test
+    public void format_matchesSimpleDateFormat() {
+        SimpleDateFormat date = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm", Locale.getDefault());
+        SimpleDateFormat dateTime = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
+
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long timestamp = START + (long) (random.nextDouble() * SPAN_MS);
+            Date asDate = new Date(timestamp);
+            assertEquals(date.format(asDate), DateUtils.formatDate(timestamp));
+            assertEquals(time.format(asDate), DateUtils.formatTime(timestamp));
+            assertEquals(dateTime.format(asDate), DateUtils.formatDateTime(timestamp));
+        }
+    }
+
+    @Test
+    public void format_followsTimeZoneChanges() {
+        TimeZone original = TimeZone.getDefault();
+        try {
+            // 2017-07-14 02:40 UTC
+            TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+            assertEquals("02:40", DateUtils.formatTime(START));
+            assertEquals("2017-07-14", DateUtils.formatDay(START));
+
+            TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+            assertEquals("19:40", DateUtils.formatTime(START));
+            assertEquals("2017-07-13", DateUtils.formatDay(START));
+        } finally {
+            TimeZone.setDefault(original);
+        }
+    }
+
+    @Test
+    public void format_isCorrectUnderConcurrentUse() throws Exception {
+        long[] timestamps = timestamps(20_000, new Random(11));
+        String[] expected = new String[timestamps.length];
+        SimpleDateFormat reference = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
+        for (int i = 0; i < timestamps.length; i++) {
+            expected[i] = reference.format(new Date(timestamps[i]));
+        }
+
+        AtomicInteger mismatches = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < timestamps.length; i++) {
+                    if (!expected[i].equals(DateUtils.formatDateTime(timestamps[i]))) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            }
+            return null;
+        });
+
+        assertEquals(0, mismatches.get());
+    }
+
+    // Runs the task on THREADS threads at once; nanoseconds until all have finished
+    static long runConcurrently(Callable<Object> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            Future<?>[] futures = new Future<?>[THREADS];
+            for (int i = 0; i < THREADS; i++) {
+                futures[i] = pool.submit(task);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    static long[] timestamps(int count, Random random) {
+        long[] timestamps = new long[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = START + (long) (random.nextDouble() * SPAN_MS);
+        }
+        return timestamps;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.smarttimeline.util;
+
+import com.example.smarttimeline.data.entity.Post;
+import com.example.smarttimeline.ui.timeline.SearchFilterHelper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TrigramIndexTest {
+
+    static final String[] QUERIES = {"ing", "offe", "park", "lis", "tation", "riv", "zzz", "ork", "ee", "market"};
+
+    @Test
+    public void search_matchesInsideWordsIgnoringCaseAndAccents() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Breakfast at Le Café", "Lisbon", null);
+        index.put(2, "Long walk", "São Paulo", Arrays.asList("Outdoors"));
+
+        assertEquals(ids(1), index.search("caf"));
+        assertEquals(ids(1), index.search("CAFÉ"));
+        assertEquals(ids(2), index.search("sao pau"));
+        assertEquals(ids(2), index.search("door"));
+        assertEquals(ids(1), index.search("sbo"));
+    }
+
+    @Test
+    public void search_shortQueriesScanFoldedText() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Über", null, null);
+        index.put(2, "Bread", null, null);
+
+        assertEquals(ids(1), index.search("ub"));
+        assertEquals(ids(1, 2), index.search("r"));
+        assertTrue(index.search("  ").isEmpty());
+    }
+
+    @Test
+    public void search_dropsCandidatesWhoseGramsAreNotAdjacent() {
+        TrigramIndex index = new TrigramIndex();
+        // Contains "abc" and "bcd" but not "abcd"
+        index.put(1, "abc bcd", null, null);
+
+        assertTrue(index.search("abcd").isEmpty());
+    }
+
+    @Test
+    public void search_doesNotMatchAcrossFields() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "tea", "room", null);
+
+        assertTrue(index.search("aro").isEmpty());
+        assertTrue(index.search("tearoom").isEmpty());
+    }
+
+    @Test
+    public void put_replacesPreviousVersionAndRemoveForgetsPost() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(7, "Morning run", null, null);
+        index.put(7, "Evening swim", null, null);
+
+        assertTrue(index.search("run").isEmpty());
+        assertEquals(ids(7), index.search("swim"));
+
+        index.remove(7);
+        assertTrue(index.search("swim").isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void search_agreesWithLinearScan() {
+        List<Post> posts = generatePosts(2_000, new Random(42));
+        TrigramIndex index = new TrigramIndex();
+        for (Post post : posts) {
+            index.put(post.getId(), post.getText(), post.getLocation(), post.getTags());
+        }
+
+        for (String query : QUERIES) {
+            BitSet expected = new BitSet();
+            for (Post post : SearchFilterHelper.searchByText(posts, query)) {
+                expected.set(post.getId());
+            }
+            assertEquals("query " + query, expected, index.search(query));
+        }
+    }
+
+    static List<Post> generatePosts(int count, Random random) {
+        String[] words = {"coffee", "morning", "walk", "park", "river", "station", "market", "working",
+                "evening", "reading", "train", "friends", "dinner", "garden", "meeting", "rain"};
+        String[] locations = {"Lisbon", "New York", "Berlin", "Kyoto", "Oslo", null};
+        String[] tags = {"work", "travel", "family", "food", "health"};
+
+        List<Post> posts = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = 5 + random.nextInt(20);
+            for (int w = 0; w < length; w++) {
+                if (w > 0) {
+                    text.append(' ');
+                }
+                text.append(words[random.nextInt(words.length)]);
+            }
+
+            Post post = new Post();
+            post.setId(i);
+            post.setText(text.toString());
+            post.setLocation(locations[random.nextInt(locations.length)]);
+            post.setTags(random.nextBoolean()
+                    ? Collections.singletonList(tags[random.nextInt(tags.length)])
+                    : null);
+            posts.add(post);
+        }
+        return posts;
+    }
+
+    private static BitSet ids(int... ids) {
+        BitSet set = new BitSet();
+        for (int id : ids) {
+            set.set(id);
+        }
+        return set;
+    }
+}